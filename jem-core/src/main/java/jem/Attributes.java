@@ -68,9 +68,22 @@ public final class Attributes {
 
     public static final String VALUES_SEPARATOR = ";";
 
-    private static Map<String, String> typeMappings = new HashMap<>();
+    /**
+     * Lock for registration of attribute types.
+     */
+    private static final Object lock = new Object();
+
+    /**
+     * Immutable snapshot of attribute types, replaced on registration.
+     */
+    private static volatile Map<String, String> typeMappings = Collections.emptyMap();
+
+    /**
+     * Immutable snapshot of canonical instances of known attribute names, replaced on registration.
+     */
+    private static volatile Map<String, String> canonicalNames = Collections.emptyMap();
 
-    private static final Validator typeValidator = new Validator() {
+    static final Validator typeValidator = new Validator() {
         @Override
         public void validate(String name, Object value) throws IllegalArgumentException {
             val type = getType(name);
@@ -105,7 +118,27 @@ public final class Attributes {
      * @throws NullPointerException if the attribute name or type name is null
      */
     public static void mapType(@NonNull String name, @NonNull String type) {
-        typeMappings.put(name, type);
+        synchronized (lock) {
+            val types = new HashMap<String, String>(typeMappings);
+            types.put(name, type);
+            publish(types);
+        }
+    }
+
+    /**
+     * Returns the canonical instance of specified attribute name.
+     * <p>
+     * Names returned by this method are the same instances as the name constants, which makes lookups in
+     * {@code VariantMap} cheaper. Parsers should use it for names read from files.
+     * </p>
+     *
+     * @param name the attribute name
+     * @return the canonical name, or the name itself if it is unknown
+     * @throws NullPointerException if specified attribute name is null
+     */
+    public static String internName(@NonNull String name) {
+        val canonical = canonicalNames.get(name);
+        return canonical != null ? canonical : name;
     }
 
     /**
@@ -302,6 +335,20 @@ public final class Attributes {
         setValue(chapter, WORDS, words);
     }
 
+    /**
+     * Gets number of words of specified chapter.
+     * <p>
+     * The attribute is stored as string, which is parsed each time it is read.
+     * </p>
+     *
+     * @param chapter the chapter
+     * @return number of words, or {@literal -1} if the attribute is not present or not a number
+     * @throws NullPointerException if the chapter is null
+     */
+    public static int getWordCount(@NonNull Chapter chapter) {
+        return chapter.getAttributes().getInt(WORDS, -1);
+    }
+
     public static void setWords(Chapter chapter, int words) {
         setWords(chapter, Integer.toString(words));
     }
@@ -317,10 +364,35 @@ public final class Attributes {
         if (map == null) {
             return;
         }
-        update(typeMappings, map);
+        synchronized (lock) {
+            val types = new HashMap<String, String>(typeMappings);
+            update(types, map);
+            publish(types);
+        }
+    }
+
+    /**
+     * Publishes new type mappings and updates canonical names, must be called with the lock held.
+     */
+    private static void publish(Map<String, String> types) {
+        val names = new HashMap<String, String>(canonicalNames);
+        for (val name : types.keySet()) {
+            if (!names.containsKey(name)) {
+                names.put(name, name);
+            }
+        }
+        canonicalNames = Collections.unmodifiableMap(names);
+        typeMappings = Collections.unmodifiableMap(types);
     }
 
     static {
+        val names = new HashMap<String, String>();
+        for (val name : new String[]{
+                AUTHOR, COVER, DATE, GENRE, INTRO, ISBN, KEYWORDS, LANGUAGE, PRICE,
+                PUBDATE, PUBLISHER, RIGHTS, SERIES, STATE, TITLE, VENDOR, WORDS}) {
+            names.put(name, name);
+        }
+        canonicalNames = Collections.unmodifiableMap(names);
         initBuiltins();
     }
 }
@@ -21,6 +21,10 @@ package jem;
 import jem.util.VariantMap;
 import lombok.Getter;
 import lombok.NonNull;
+import lombok.val;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * The book in Jem book models.
@@ -50,7 +54,7 @@ public class Book extends Chapter {
      * @throws NullPointerException if the chapter is null
      */
     public Book(@NonNull Chapter chapter, boolean deepCopy) {
-        chapter.dumpTo(chapter, deepCopy);
+        chapter.dumpTo(this, deepCopy);
     }
 
     /**
@@ -59,6 +63,55 @@ public class Book extends Chapter {
     @Getter
     private VariantMap extensions = new VariantMap();
 
+    /**
+     * Listeners for changes of the book, optional.
+     */
+    private List<ChapterListener> listeners = null;
+
+    /**
+     * Adds listener for changes of the book and all its descendants.
+     *
+     * @param listener the listener to be added
+     * @throws NullPointerException if the listener is null
+     */
+    public final void addListener(@NonNull ChapterListener listener) {
+        if (listeners == null) {
+            listeners = new CopyOnWriteArrayList<>();
+        }
+        if (listeners.isEmpty()) {
+            extensions.setListener(new VariantMap.Listener() {
+                @Override
+                public void variantChanged(VariantMap map, String name, Object oldValue, Object newValue) {
+                    if (map == extensions) {
+                        fireChange(ChapterEvent.Type.EXTENSION, name, oldValue, newValue);
+                    }
+                }
+            });
+        }
+        listeners.add(listener);
+    }
+
+    /**
+     * Removes specified listener.
+     *
+     * @param listener the listener to be removed
+     */
+    public final void removeListener(ChapterListener listener) {
+        if (listeners != null) {
+            listeners.remove(listener);
+        }
+    }
+
+    final boolean hasListeners() {
+        return listeners != null && !listeners.isEmpty();
+    }
+
+    final void dispatch(ChapterEvent event) {
+        for (val listener : listeners) {
+            listener.chapterChanged(event);
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -67,6 +120,7 @@ public class Book extends Chapter {
         super.dumpTo(chapter, deepCopy);
         if (chapter instanceof Book) {
             ((Book) chapter).extensions = extensions.clone();
+            ((Book) chapter).listeners = null;
         }
     }
 
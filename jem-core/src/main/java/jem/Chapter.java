@@ -19,13 +19,17 @@
 package jem;
 
 import jclp.function.Consumer;
-import jclp.log.Log;
+import jclp.function.Predicate;
 import jclp.util.Hierarchial;
+import jem.util.LeakDetector;
 import jem.util.VariantMap;
 import jem.util.text.Text;
 import lombok.*;
 
+import java.lang.ref.WeakReference;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 import static jclp.util.Validate.require;
 import static jem.Attributes.*;
@@ -42,30 +46,59 @@ import static jem.Attributes.*;
  * <li>Tag: extra data field used by user, optional</li>
  * <li>Cleanups: actions for cleanup resources of the chapter</li>
  * </ul>
+ * <p>
+ * Sub-chapter list and cleanup set are allocated when they are modified at the first time, so a leaf chapter
+ * without cleanups only allocates the chapter itself and its attribute map. Loader, cleanups and copy-on-write
+ * state are kept in a side object allocated by the few chapters using them.
+ * </p>
+ * <p>
+ * On 64-bit VMs with compressed references, a chapter takes 48 bytes and an empty chapter with its attribute
+ * map takes 88 bytes. A leaf chapter with a title takes 120 bytes, not counting the title string.
+ * </p>
  */
 public class Chapter implements Hierarchial<Chapter>, Cloneable {
-    private static final String TAG = "Chapter";
-
     /**
      * Attributes of the chapter.
      */
     @Getter
-    private VariantMap attributes = newAttributes();
+    private VariantMap attributes = new ChapterAttributes(this);
 
     /**
      * Extra data field used by user.
      */
     @Getter
-    @Setter
     private Object tag = null;
 
+    /**
+     * Sets extra data field used by user.
+     *
+     * @param tag the data, may be {@literal null}
+     */
+    public void setTag(Object tag) {
+        beforeChange(false);
+        this.tag = tag;
+    }
+
     /**
      * Optional text of the chapter.
      */
     @Getter
-    @Setter
     private Text text = null;
 
+    /**
+     * Sets text of the chapter.
+     *
+     * @param text the new text, or {@literal null} to remove the text
+     */
+    public void setText(Text text) {
+        val old = this.text;
+        if (old != text) {
+            beforeChange(false);
+            this.text = text;
+            fireChange(ChapterEvent.Type.TEXT, null, old, text);
+        }
+    }
+
     /**
      * Constructs instance without attributes.
      */
@@ -102,7 +135,7 @@ public class Chapter implements Hierarchial<Chapter>, Cloneable {
      * @throws NullPointerException if the chapter is null
      */
     public Chapter(@NonNull Chapter chapter, boolean deepCopy) {
-        dumpTo(chapter, deepCopy);
+        chapter.dumpTo(this, deepCopy);
     }
 
     // *************************************** \\
@@ -112,7 +145,64 @@ public class Chapter implements Hierarchial<Chapter>, Cloneable {
     @Getter
     private Chapter parent = null;
 
-    private ArrayList<Chapter> children = new ArrayList<>();
+    /**
+     * Shared empty sub-chapter list, never modified.
+     */
+    private static final ArrayList<Chapter> NO_CHILDREN = new ArrayList<>(0);
+
+    private ArrayList<Chapter> children = NO_CHILDREN;
+
+    /**
+     * Flag bit: sub-chapter list is shared with copies of this chapter or is {@code NO_CHILDREN}, and must be
+     * copied before modifying.
+     */
+    private static final int SHARED_CHILDREN = 1;
+
+    /**
+     * Flag bit: sub-chapters are being loaded, changes are not reported.
+     */
+    private static final int LOADING = 2;
+
+    /**
+     * Flag bit: the chapter is cleaned up.
+     */
+    private static final int CLEANED = 4;
+
+    /**
+     * Bits of {@code SHARED_CHILDREN}, {@code LOADING} and {@code CLEANED}.
+     */
+    private byte flags = SHARED_CHILDREN;
+
+    /**
+     * Index of this chapter in sub-chapter list of its parent.
+     * <p>
+     * The value is only reliable when it is less than {@code staleFrom} of the parent.
+     * </p>
+     */
+    private int position = -1;
+
+    /**
+     * Positions of sub-chapters at and after this index may be out of date.
+     */
+    private int staleFrom = 0;
+
+    /**
+     * Sets action for loading sub-chapters when sub-chapter list is accessed at the first time.
+     * <p>
+     * The loader should append sub-chapters to the given chapter, and it is discarded after it completed. If the
+     * loader throws an exception, sub-chapters appended by it are removed, the loader is kept for next access and
+     * the exception is rethrown as {@link ChapterLoadException} by the accessing method.
+     * </p>
+     *
+     * @param loader the loader, or {@literal null} to cancel loading
+     */
+    public final void setLoader(Consumer<? super Chapter> loader) {
+        if (loader != null) {
+            extras().loader = loader;
+        } else if (extras != null) {
+            extras.loader = null;
+        }
+    }
 
     /**
      * Appends specified chapter to the end of sub-chapter list.
@@ -122,8 +212,16 @@ public class Chapter implements Hierarchial<Chapter>, Cloneable {
      * @throws IllegalArgumentException if the specified chapter is not solitary
      */
     public final void append(@NonNull Chapter chapter) {
+        ensureLoaded();
+        beforeChange(true);
+        ownChildren();
         children.add(requireSolitary(chapter));
         chapter.parent = this;
+        chapter.position = children.size() - 1;
+        if (staleFrom == chapter.position) {
+            ++staleFrom;
+        }
+        fireHierarchy(null, chapter);
     }
 
     /**
@@ -149,17 +247,25 @@ public class Chapter implements Hierarchial<Chapter>, Cloneable {
      * @throws IndexOutOfBoundsException if the index is out of range (<tt>index &lt; 0 || index &gt; size()</tt>)
      */
     public final void insert(int index, @NonNull Chapter chapter) {
+        ensureLoaded();
+        beforeChange(true);
+        ownChildren();
         children.add(index, requireSolitary(chapter));
         chapter.parent = this;
+        chapter.position = index;
+        staleFrom = Math.min(staleFrom, index);
+        fireHierarchy(null, chapter);
     }
 
     /**
      * Returns the number of chapters in sub-chapter list.
      *
      * @return the number of chapters in sub-chapter list
+     * @throws ChapterLoadException if the sub-chapters cannot be loaded
      */
     @Override
     public final int size() {
+        ensureLoaded();
         return children.size();
     }
 
@@ -169,7 +275,7 @@ public class Chapter implements Hierarchial<Chapter>, Cloneable {
      * @return <tt>true</tt> if sub-chapter list is not empty
      */
     public final boolean isSection() {
-        return !children.isEmpty();
+        return loader() != null || !children.isEmpty();
     }
 
     /**
@@ -181,7 +287,24 @@ public class Chapter implements Hierarchial<Chapter>, Cloneable {
      * does not contain the chapter
      */
     public final int indexOf(Chapter chapter) {
-        return chapter == null || chapter.parent != this ? -1 : children.indexOf(chapter);
+        if (chapter == null || chapter.parent != this) {
+            return -1;
+        }
+        if (chapter.position >= staleFrom) {
+            updatePositions();
+        }
+        return chapter.position;
+    }
+
+    /**
+     * Finds index of specified sub-chapter without updating stale positions, for modifications which make
+     * positions stale again.
+     */
+    private int locate(Chapter chapter) {
+        if (chapter.parent != this) {
+            return -1;
+        }
+        return chapter.position < staleFrom ? chapter.position : children.indexOf(chapter);
     }
 
     /**
@@ -203,8 +326,10 @@ public class Chapter implements Hierarchial<Chapter>, Cloneable {
      * @param index index of the chapter to return
      * @return the chapter at the specified position in sub-chapter list
      * @throws IndexOutOfBoundsException if the index is out of range (<tt>index &lt; 0 || index &gt;= size()</tt>)
+     * @throws ChapterLoadException      if the sub-chapters cannot be loaded
      */
     public final Chapter chapterAt(int index) {
+        ensureLoaded();
         return children.get(index);
     }
 
@@ -218,13 +343,11 @@ public class Chapter implements Hierarchial<Chapter>, Cloneable {
      * @throws IllegalArgumentException if the specified chapter is not solitary
      */
     public final boolean replace(@NonNull Chapter chapter, @NonNull Chapter target) {
-        val index = indexOf(chapter);
+        val index = locate(chapter);
         if (index == -1) {
             return false;
         }
-        children.set(index, requireSolitary(target));
-        chapter.parent = this;
-        chapter.parent = null;
+        replaceAt(index, target);
         return true;
     }
 
@@ -239,9 +362,15 @@ public class Chapter implements Hierarchial<Chapter>, Cloneable {
      * @throws IndexOutOfBoundsException if the index is out of range (<tt>index &lt; 0 || index &gt; size()</tt>)
      */
     public final Chapter replaceAt(int index, @NonNull Chapter chapter) {
+        ensureLoaded();
+        beforeChange(true);
+        ownChildren();
         val current = children.set(index, requireSolitary(chapter));
         chapter.parent = this;
+        chapter.position = index;
         current.parent = null;
+        current.position = -1;
+        fireHierarchy(current, chapter);
         return current;
     }
 
@@ -253,28 +382,94 @@ public class Chapter implements Hierarchial<Chapter>, Cloneable {
      * @throws NullPointerException if the specified chapter is null
      */
     public final boolean remove(@NonNull Chapter chapter) {
-        if (chapter.parent != this) {
+        val index = locate(chapter);
+        if (index == -1) {
             return false;
         }
-        if (children.remove(chapter)) {
-            chapter.parent = null;
-            return true;
-        }
-        return false;
+        removeAt(index);
+        return true;
     }
 
     /**
      * Removes the chapter at the specified position in sub-chapter.
+     * <p>
+     * Positions of following chapters become stale and are updated by next {@link #indexOf(Chapter)}. Use
+     * {@link #removeIf(Predicate)} to remove many chapters.
+     * </p>
      *
      * @param index the index of the chapter to be removed
      * @return the chapter previously at the specified position
      */
     public final Chapter removeAt(int index) {
+        ensureLoaded();
+        beforeChange(true);
+        ownChildren();
         val current = children.remove(index);
         current.parent = null;
+        current.position = -1;
+        staleFrom = Math.min(staleFrom, index);
+        fireHierarchy(current, null);
         return current;
     }
 
+    /**
+     * Removes all chapters satisfying specified filter from sub-chapter list.
+     * <p>
+     * The filter is applied to all chapters before any of them is removed, so sub-chapter list is not changed if
+     * the filter throws an exception. Then the list is compacted in one pass, so the cost is linear in the size
+     * of list. The filter must not modify sub-chapter list.
+     * </p>
+     *
+     * @param filter the filter returning {@literal true} for chapters to be removed
+     * @return number of removed chapters
+     * @throws NullPointerException            if the filter is null
+     * @throws ConcurrentModificationException if sub-chapter list is modified by the filter
+     */
+    public final int removeIf(@NonNull Predicate<? super Chapter> filter) {
+        ensureLoaded();
+        val end = children.size();
+        boolean[] matched = null;
+        int count = 0;
+        for (int i = 0; i < end; ++i) {
+            if (filter.test(children.get(i))) {
+                if (matched == null) {
+                    matched = new boolean[end];
+                }
+                matched[i] = true;
+                ++count;
+            }
+        }
+        if (children.size() != end) {
+            throw new ConcurrentModificationException();
+        }
+        if (count == 0) {
+            return 0;
+        }
+        beforeChange(true);
+        ownChildren();
+        val removed = new ArrayList<Chapter>(count);
+        int size = 0;
+        for (int i = 0; i < end; ++i) {
+            val chapter = children.get(i);
+            if (matched[i]) {
+                removed.add(chapter);
+            } else {
+                if (size != i) {
+                    children.set(size, chapter);
+                }
+                chapter.position = size++;
+            }
+        }
+        children.subList(size, end).clear();
+        staleFrom = size;
+        for (val chapter : removed) {
+            chapter.parent = null;
+            chapter.position = -1;
+            fireHierarchy(chapter, null);
+        }
+        return count;
+    }
+
     /**
      * Swaps the chapters at the specified positions in sub-chapter list.
      *
@@ -284,7 +479,13 @@ public class Chapter implements Hierarchial<Chapter>, Cloneable {
      *                                   &gt;= size() || to &lt; 0 || to &gt;= size()).
      */
     public final void swap(int from, int to) {
+        ensureLoaded();
+        beforeChange(true);
+        ownChildren();
         Collections.swap(children, from, to);
+        children.get(from).position = from;
+        children.get(to).position = to;
+        fireHierarchy(null, null);
     }
 
     /**
@@ -303,18 +504,108 @@ public class Chapter implements Hierarchial<Chapter>, Cloneable {
      * @param cleanup <tt>true</tt> to call <tt>cleanup</tt> for all chapters
      */
     public final void clear(boolean cleanup) {
+        if (loader() == null && children.isEmpty()) {
+            return;
+        }
+        beforeChange(true);
+        setLoader(null);
+        if (children.isEmpty()) {
+            return;
+        }
         for (val chapter : children) {
             chapter.parent = null;
+            chapter.position = -1;
             if (cleanup) {
                 chapter.cleanup();
             }
         }
-        children.clear();
+        if (hasFlag(SHARED_CHILDREN)) {
+            children = NO_CHILDREN;
+        } else {
+            children.clear();
+        }
+        staleFrom = 0;
+        fireHierarchy(null, null);
     }
 
+    /**
+     * Returns an iterator over sub-chapter list.
+     *
+     * @return the iterator, which does not support removing
+     * @throws ChapterLoadException if the sub-chapters cannot be loaded
+     */
     @Override
     public final Iterator<Chapter> iterator() {
-        return children.iterator();
+        ensureLoaded();
+        return Collections.unmodifiableList(children).iterator();
+    }
+
+    /**
+     * Loads sub-chapters of this chapter and all its descendants, which are loaded when they are accessed at the
+     * first time otherwise.
+     *
+     * @throws ChapterLoadException if sub-chapters of any chapter cannot be loaded
+     * @see #clone()
+     */
+    public final void loadAll() {
+        for (val chapter : this) {
+            chapter.loadAll();
+        }
+    }
+
+    private void ensureLoaded() {
+        val loader = loader();
+        if (loader == null || hasFlag(LOADING)) {
+            return;
+        }
+        val size = children.size();
+        setFlag(LOADING, true);
+        try {
+            loader.accept(this);
+            setLoader(null);
+        } catch (ChapterLoadException e) {
+            discardLoaded(size);
+            throw e;
+        } catch (Exception e) {
+            discardLoaded(size);
+            throw new ChapterLoadException("cannot load sub-chapters of '" + getTitle(this) + "'", e);
+        } finally {
+            setFlag(LOADING, false);
+        }
+    }
+
+    /**
+     * Removes sub-chapters appended by a failed loader.
+     */
+    private void discardLoaded(int size) {
+        val end = children.size();
+        if (end > size) {
+            for (int i = size; i < end; ++i) {
+                val chapter = children.get(i);
+                chapter.parent = null;
+                chapter.position = -1;
+            }
+            children.subList(size, end).clear();
+        }
+        if (children.isEmpty()) {
+            children = NO_CHILDREN;
+            setFlag(SHARED_CHILDREN, true);
+        }
+        staleFrom = Math.min(staleFrom, size);
+    }
+
+    private void ownChildren() {
+        if (hasFlag(SHARED_CHILDREN)) {
+            children = new ArrayList<>(children);
+            setFlag(SHARED_CHILDREN, false);
+        }
+    }
+
+    private void updatePositions() {
+        for (int i = staleFrom, end = children.size(); i < end; ++i) {
+            children.get(i).position = i;
+        }
+        staleFrom = children.size();
     }
 
     private Chapter requireSolitary(Chapter chapter) {
@@ -324,21 +615,226 @@ public class Chapter implements Hierarchial<Chapter>, Cloneable {
         return chapter;
     }
 
+    // ************************************* \\
+    // **** Change Notification Support **** \\
+    // ************************************* \\
+
+    /**
+     * Returns the root book of this chapter if it has listeners and this chapter is not being loaded.
+     */
+    private Book listeningBook() {
+        Chapter chapter = this;
+        while (!chapter.hasFlag(LOADING)) {
+            if (chapter.parent == null) {
+                return chapter instanceof Book && ((Book) chapter).hasListeners() ? (Book) chapter : null;
+            }
+            chapter = chapter.parent;
+        }
+        return null;
+    }
+
+    final void fireChange(ChapterEvent.Type type, String name, Object oldValue, Object newValue) {
+        val book = listeningBook();
+        if (book != null) {
+            book.dispatch(new ChapterEvent(type, this, name, oldValue, newValue));
+        }
+    }
+
+    private void fireHierarchy(Chapter removed, Chapter added) {
+        val book = listeningBook();
+        if (book != null) {
+            book.dispatch(new ChapterEvent(ChapterEvent.Type.HIERARCHY, this, null, removed, added));
+        }
+    }
+
+    /**
+     * Reports attribute changes of this chapter, called by attribute map of this chapter.
+     * <p>
+     * Every chapter reports to its current root, so chapters added while loading or after listeners are added
+     * need not be registered.
+     * </p>
+     */
+    private void attributeChanged(String name, Object oldValue, Object newValue) {
+        if (extras != null && extras.trace != null && newValue != null && TITLE.equals(name)) {
+            extras.trace.setHint(newValue);
+        }
+        fireChange(ChapterEvent.Type.ATTRIBUTE, name, oldValue, newValue);
+    }
+
+    // ********************************** \\
+    // **** Contents Walk Operations **** \\
+    // ********************************** \\
+
+    /**
+     * Performs specified action for this chapter and all its descendants in depth-first order.
+     *
+     * @param action the action to be performed
+     * @throws NullPointerException if the action is null
+     */
+    public final void walk(@NonNull Consumer<? super Chapter> action) {
+        action.accept(this);
+        for (val chapter : this) {
+            chapter.walk(action);
+        }
+    }
+
+    /**
+     * Performs specified action for this chapter and all its descendants in parallel with shared pool.
+     *
+     * @param action the action to be performed
+     * @throws NullPointerException if the action is null
+     * @see #walkParallel(ForkJoinPool, Consumer)
+     */
+    public final void walkParallel(@NonNull Consumer<? super Chapter> action) {
+        walkParallel(WalkPool.POOL, action);
+    }
+
+    /**
+     * Performs specified action for this chapter and all its descendants in parallel with specified pool.
+     * <p>
+     * The action must be thread-safe and there is no guaranteed order of chapters. Sub-chapter lists must not be
+     * modified while walking.
+     * </p>
+     *
+     * @param pool   the fork-join pool to run the action
+     * @param action the action to be performed
+     * @throws NullPointerException if the pool or action is null
+     */
+    public final void walkParallel(@NonNull ForkJoinPool pool, @NonNull Consumer<? super Chapter> action) {
+        pool.invoke(new WalkTask(this, action));
+    }
+
+    private static class WalkPool {
+        private static final ForkJoinPool POOL = new ForkJoinPool();
+    }
+
+    /**
+     * Visits a chapter and walks its sub-chapter list.
+     */
+    @RequiredArgsConstructor
+    private static class WalkTask extends RecursiveAction {
+        private final Chapter chapter;
+        private final Consumer<? super Chapter> action;
+
+        @Override
+        protected void compute() {
+            action.accept(chapter);
+            val size = chapter.size();
+            if (size != 0) {
+                new RangeTask(chapter, 0, size, action).compute();
+            }
+        }
+    }
+
+    /**
+     * Walks a range of sub-chapter list, splits it while it is large, and forks sections as separate tasks.
+     */
+    @RequiredArgsConstructor
+    private static class RangeTask extends RecursiveAction {
+        private static final int THRESHOLD = 64;
+
+        private final Chapter parent;
+        private final int from, to;
+        private final Consumer<? super Chapter> action;
+
+        @Override
+        protected void compute() {
+            if (to - from > THRESHOLD) {
+                val middle = (from + to) >>> 1;
+                invokeAll(new RangeTask(parent, from, middle, action), new RangeTask(parent, middle, to, action));
+                return;
+            }
+            val sections = new ArrayList<WalkTask>();
+            for (int i = from; i < to; ++i) {
+                val chapter = parent.chapterAt(i);
+                if (chapter.isSection()) {
+                    sections.add(new WalkTask(chapter, action));
+                } else {
+                    action.accept(chapter);
+                }
+            }
+            if (!sections.isEmpty()) {
+                invokeAll(sections);
+            }
+        }
+    }
+
+    // ******************************** \\
+    // **** Optional State Support **** \\
+    // ******************************** \\
+
+    /**
+     * State used by few chapters, allocated when any of them is set.
+     */
+    private Extras extras = Extras.of(LeakDetector.track(this, null));
+
+    private Extras extras() {
+        if (extras == null) {
+            extras = new Extras();
+        }
+        return extras;
+    }
+
+    private Consumer<? super Chapter> loader() {
+        return extras != null ? extras.loader : null;
+    }
+
+    private boolean hasFlag(int flag) {
+        return (flags & flag) != 0;
+    }
+
+    private void setFlag(int flag, boolean on) {
+        flags = (byte) (on ? flags | flag : flags & ~flag);
+    }
+
+    private static final class Extras {
+        /**
+         * Action for loading sub-chapters when they are accessed at the first time.
+         */
+        private Consumer<? super Chapter> loader;
+
+        private Set<Consumer<? super Chapter>> cleanups;
+
+        /**
+         * Trace for reporting the chapter when it is collected without cleaned up.
+         * <p>
+         * The hint of trace is the title, any object referring to the chapter would keep it reachable.
+         * </p>
+         *
+         * @see LeakDetector
+         */
+        private LeakDetector.Trace trace;
+
+        /**
+         * Copies of the chapter whose sub-chapters are not cloned yet.
+         */
+        private List<WeakReference<Chapter>> pendingCopies;
+
+        private static Extras of(LeakDetector.Trace trace) {
+            if (trace == null) {
+                return null;
+            }
+            val extras = new Extras();
+            extras.trace = trace;
+            return extras;
+        }
+    }
+
     // ************************************** \\
     // **** Resources Cleanup Operations **** \\
     // ************************************** \\
 
-    private boolean cleaned = false;
-
-    private Set<Consumer<? super Chapter>> cleanups = new LinkedHashSet<>();
-
     /**
      * Adds specified cleanup action.
      *
      * @param cleanup the action to be executed when cleaning up the chapter
      */
     public final void addCleanup(@NonNull Consumer<? super Chapter> cleanup) {
-        cleanups.add(cleanup);
+        val extras = extras();
+        if (extras.cleanups == null) {
+            extras.cleanups = new LinkedHashSet<>(4);
+        }
+        extras.cleanups.add(cleanup);
     }
 
     /**
@@ -347,7 +843,9 @@ public class Chapter implements Hierarchial<Chapter>, Cloneable {
      * @param cleanup the cleanup to be removed
      */
     public final void removeCleanup(@NonNull Consumer<? super Chapter> cleanup) {
-        cleanups.remove(cleanup);
+        if (extras != null && extras.cleanups != null) {
+            extras.cleanups.remove(cleanup);
+        }
     }
 
     /**
@@ -363,45 +861,217 @@ public class Chapter implements Hierarchial<Chapter>, Cloneable {
      * </ul>
      */
     public void cleanup() {
-        if (cleaned) {
+        if (hasFlag(CLEANED)) {
             return;
         }
-        for (val cleanup : cleanups) {
-            cleanup.accept(this);
+        beforeChange(false);
+        if (extras != null && extras.cleanups != null) {
+            for (val cleanup : extras.cleanups) {
+                cleanup.accept(this);
+            }
+            extras.cleanups = null;
         }
         clear(true);
-        cleanups.clear();
         attributes.clear();
         if (parent != null) {
             parent.remove(this);
         }
-        cleaned = true;
-    }
-
-    @Override
-    protected void finalize() throws Throwable {
-        super.finalize();
-        if (!cleaned) {
-            Log.w(TAG, "chapter {0} is not cleaned", getString(this, TITLE));
+        if (extras != null && extras.trace != null) {
+            extras.trace.close();
         }
+        extras = null;
+        setFlag(CLEANED, true);
     }
 
+    /**
+     * Creates a copy of this chapter and all its sub-chapters.
+     * <p>
+     * The copy shares attributes and sub-chapter list with this chapter until either of them is modified, and
+     * sub-chapters of the copy are cloned when they are accessed at the first time, or before sub-chapters of
+     * this chapter are modified or cleaned up.
+     * </p>
+     * <p>
+     * Until all its sub-chapters are cloned, the copy is bound to this chapter and both of them must be confined
+     * to the same thread. Call {@link #loadAll()} of the copy before handing it to another thread.
+     * </p>
+     * <p>
+     * Cleanup actions are not copied, the copy may share resources of this chapter, which should not be cleaned
+     * up while the copy is in use.
+     * </p>
+     *
+     * @return the copy
+     */
     @Override
     @SneakyThrows(CloneNotSupportedException.class)
     public Chapter clone() {
         val copy = (Chapter) super.clone();
         copy.parent = null;
+        copy.position = -1;
+        copy.flags = SHARED_CHILDREN;
+        copy.extras = Extras.of(LeakDetector.track(copy, null));
         dumpTo(copy, true);
         return copy;
     }
 
     protected void dumpTo(Chapter chapter, boolean deepCopy) {
-        chapter.attributes = attributes.clone();
+        val attributes = (ChapterAttributes) this.attributes.clone();
+        attributes.owner = chapter;
+        chapter.attributes = attributes;
+        if (chapter.extras != null && chapter.extras.trace != null) {
+            chapter.extras.trace.setHint(attributes.get(TITLE));
+        }
         if (deepCopy) {
-            chapter.children = new ArrayList<>(children.size());
-            for (val i : children) {
-                chapter.append(i.clone());
+            ensureLoaded();
+            chapter.children = NO_CHILDREN;
+            chapter.setFlag(SHARED_CHILDREN, true);
+            chapter.staleFrom = 0;
+            if (!children.isEmpty()) {
+                setFlag(SHARED_CHILDREN, true);
+                chapter.setLoader(new ChildrenCopier(this, children));
+                addPendingCopy(chapter);
+            }
+        }
+    }
+
+    // ******************************* \\
+    // **** Copy-on-write Support **** \\
+    // ******************************* \\
+
+    private void addPendingCopy(Chapter copy) {
+        val extras = extras();
+        if (extras.pendingCopies == null) {
+            extras.pendingCopies = new ArrayList<>(2);
+        } else {
+            Iterator<WeakReference<Chapter>> it = extras.pendingCopies.iterator();
+            while (it.hasNext()) {
+                val chapter = it.next().get();
+                if (chapter == null || !chapter.isCopying(this)) {
+                    it.remove();
+                }
+            }
+        }
+        extras.pendingCopies.add(new WeakReference<>(copy));
+    }
+
+    private boolean isCopying(Chapter source) {
+        val loader = loader();
+        return loader instanceof ChildrenCopier && ((ChildrenCopier) loader).source == source;
+    }
+
+    /**
+     * Clones sub-chapters for pending copies which share this chapter, called before this chapter is modified.
+     * <p>
+     * Pending copies of all ancestors are loaded from the root, so sub-chapters cloned at upper levels become
+     * pending copies of lower levels and are loaded in turn. Nothing is done while sub-chapters are being loaded.
+     * </p>
+     *
+     * @param structural {@literal true} if sub-chapter list of this chapter is to be modified
+     */
+    private void beforeChange(boolean structural) {
+        boolean pending = false;
+        for (Chapter chapter = this; chapter != null; chapter = chapter.parent) {
+            if (chapter.hasFlag(LOADING)) {
+                return;
+            }
+            val extras = chapter.extras;
+            if (extras != null && extras.pendingCopies != null && (structural || chapter != this)) {
+                pending = true;
+            }
+        }
+        if (pending) {
+            loadPendingCopies(structural ? this : parent);
+        }
+    }
+
+    private static void loadPendingCopies(Chapter chapter) {
+        if (chapter == null) {
+            return;
+        }
+        loadPendingCopies(chapter.parent);
+        val extras = chapter.extras;
+        if (extras == null || extras.pendingCopies == null) {
+            return;
+        }
+        val copies = extras.pendingCopies;
+        extras.pendingCopies = null;
+        for (val ref : copies) {
+            val copy = ref.get();
+            if (copy != null && copy.isCopying(chapter)) {
+                copy.ensureLoaded();
+            }
+        }
+    }
+
+    private static class ChildrenCopier implements Consumer<Chapter> {
+        private final Chapter source;
+
+        private final List<Chapter> sources;
+
+        private ChildrenCopier(Chapter source, List<Chapter> sources) {
+            this.source = source;
+            this.sources = sources;
+        }
+
+        @Override
+        public void accept(Chapter chapter) {
+            chapter.children = new ArrayList<>(sources.size());
+            chapter.setFlag(SHARED_CHILDREN, false);
+            for (val source : sources) {
+                chapter.append(source.clone());
+            }
+        }
+    }
+
+    /**
+     * Attribute map of chapter, which copies pending sub-chapters sharing the chapter before modified and
+     * reports changes to the chapter.
+     */
+    private static final class ChapterAttributes extends VariantMap {
+        private Chapter owner;
+
+        private ChapterAttributes(Chapter owner) {
+            super(Attributes.typeValidator);
+            this.owner = owner;
+        }
+
+        @Override
+        public Object setUnchecked(String name, Object value) {
+            if (owner == null) {
+                return super.setUnchecked(name, value);
             }
+            owner.beforeChange(false);
+            val old = super.setUnchecked(name, value);
+            owner.attributeChanged(name, old, value);
+            return old;
+        }
+
+        @Override
+        public Object remove(String name) {
+            if (owner == null || !contains(name)) {
+                return super.remove(name);
+            }
+            owner.beforeChange(false);
+            val old = super.remove(name);
+            owner.attributeChanged(name, old, null);
+            return old;
+        }
+
+        @Override
+        public void clear() {
+            if (owner == null || size() == 0) {
+                super.clear();
+                return;
+            }
+            owner.beforeChange(false);
+            super.clear();
+            owner.attributeChanged(null, null, null);
+        }
+
+        @Override
+        public VariantMap clone() {
+            val copy = (ChapterAttributes) super.clone();
+            copy.owner = null;
+            return copy;
         }
     }
 
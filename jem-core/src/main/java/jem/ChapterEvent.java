@@ -0,0 +1,90 @@
+/*
+ * Copyright 2017 Peng Wan <phylame@163.com>
+ *
+ * This file is part of Jem.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jem;
+
+import lombok.Getter;
+
+/**
+ * Event describing a change of chapter.
+ *
+ * @see ChapterListener
+ */
+@Getter
+public class ChapterEvent {
+    /**
+     * Kinds of changes.
+     */
+    public enum Type {
+        /**
+         * Sub-chapter list of the source is changed.
+         */
+        HIERARCHY,
+        /**
+         * Attribute of the source is changed.
+         */
+        ATTRIBUTE,
+        /**
+         * Text of the source is changed.
+         */
+        TEXT,
+        /**
+         * Extension of the source book is changed.
+         */
+        EXTENSION
+    }
+
+    /**
+     * The kind of the change.
+     */
+    private final Type type;
+
+    /**
+     * The changed chapter.
+     */
+    private final Chapter source;
+
+    /**
+     * The attribute or extension name, or {@literal null} if the change is not for a name.
+     */
+    private final String name;
+
+    /**
+     * The value before the change, a removed sub-chapter for hierarchy change.
+     */
+    private final Object oldValue;
+
+    /**
+     * The value after the change, an added sub-chapter for hierarchy change.
+     */
+    private final Object newValue;
+
+    public ChapterEvent(Type type, Chapter source, String name, Object oldValue, Object newValue) {
+        this.type = type;
+        this.source = source;
+        this.name = name;
+        this.oldValue = oldValue;
+        this.newValue = newValue;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s{type=%s, source=%s, name=%s, oldValue=%s, newValue=%s}",
+                getClass().getSimpleName(), type, source, name, oldValue, newValue);
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2017 Peng Wan <phylame@163.com>
+ *
+ * This file is part of Jem.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jem;
+
+/**
+ * Listener for changes of chapters in a book.
+ * <p>
+ * Listeners are registered to a book and receive changes of the book and all its descendants.
+ * Changes made by loading sub-chapters lazily are not reported.
+ * </p>
+ *
+ * @see Book#addListener(ChapterListener)
+ */
+public interface ChapterListener {
+    /**
+     * Invoked when a chapter is changed.
+     *
+     * @param event the change event
+     */
+    void chapterChanged(ChapterEvent event);
+}
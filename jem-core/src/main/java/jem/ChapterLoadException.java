@@ -0,0 +1,39 @@
+/*
+ * Copyright 2017 Peng Wan <phylame@163.com>
+ *
+ * This file is part of Jem.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jem;
+
+/**
+ * Thrown when the loader of a chapter fails to load sub-chapters.
+ * <p>
+ * Sub-chapters appended by the failed loader are removed and the loader is kept, so the loading is retried when
+ * sub-chapters are accessed again.
+ * </p>
+ *
+ * @see Chapter#setLoader(jclp.function.Consumer)
+ */
+@SuppressWarnings("serial")
+public class ChapterLoadException extends RuntimeException {
+    public ChapterLoadException(String message) {
+        super(message);
+    }
+
+    public ChapterLoadException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2017 Peng Wan <phylame@163.com>
+ *
+ * This file is part of Jem.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jem;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * Tracker collecting changed chapters of a book.
+ * <p>
+ * A chapter is dirty when its attributes, text or sub-chapter list is changed after the tracker is created or
+ * reset. The book is also dirty when its extensions are changed.
+ * </p>
+ */
+public class DirtyTracker implements ChapterListener {
+    @Getter
+    private final Book book;
+
+    private final Set<Chapter> chapters = Collections.newSetFromMap(new IdentityHashMap<Chapter, Boolean>());
+
+    /**
+     * Creates a tracker and starts tracking specified book.
+     *
+     * @param book the book to be tracked
+     * @throws NullPointerException if the book is null
+     */
+    public DirtyTracker(@NonNull Book book) {
+        this.book = book;
+        book.addListener(this);
+    }
+
+    @Override
+    public void chapterChanged(ChapterEvent event) {
+        chapters.add(event.getSource());
+    }
+
+    /**
+     * Returns {@literal true} if any chapter is changed.
+     *
+     * @return {@literal true} if the book is changed
+     */
+    public boolean isDirty() {
+        return !chapters.isEmpty();
+    }
+
+    /**
+     * Returns {@literal true} if specified chapter is changed.
+     *
+     * @param chapter the chapter
+     * @return {@literal true} if the chapter is changed
+     */
+    public boolean isDirty(Chapter chapter) {
+        return chapters.contains(chapter);
+    }
+
+    /**
+     * Returns a read-only set of changed chapters.
+     *
+     * @return set of changed chapters
+     */
+    public Set<Chapter> getChapters() {
+        return Collections.unmodifiableSet(chapters);
+    }
+
+    /**
+     * Forgets all changed chapters, usually called after the book is saved.
+     */
+    public void reset() {
+        chapters.clear();
+    }
+
+    /**
+     * Stops tracking the book.
+     */
+    public void close() {
+        book.removeListener(this);
+        chapters.clear();
+    }
+}
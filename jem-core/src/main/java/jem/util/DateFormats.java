@@ -0,0 +1,156 @@
+/*
+ * Copyright 2017 Peng Wan <phylame@163.com>
+ *
+ * This file is part of Jem.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jem.util;
+
+import lombok.NonNull;
+import lombok.val;
+
+import java.text.DateFormat;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Cache of date formats.
+ * <p>
+ * {@code DateFormat} is expensive to create and not thread-safe, so formats are cached for each thread by
+ * pattern and locale. The cached formats are never handed out, and only the most recently used formats
+ * are kept, as patterns may come from input files.
+ * </p>
+ */
+public final class DateFormats {
+    private DateFormats() {
+    }
+
+    /**
+     * Key for the locale-dependent short date-time format.
+     */
+    private static final String SHORT_DATE_TIME = "\0short";
+
+    /**
+     * Max number of locales cached for each thread.
+     */
+    private static final int MAX_LOCALES = 4;
+
+    /**
+     * Max number of formats of a locale cached for each thread.
+     */
+    private static final int MAX_FORMATS = 32;
+
+    private static final ThreadLocal<Map<Locale, Map<String, DateFormat>>> formats =
+            new ThreadLocal<Map<Locale, Map<String, DateFormat>>>() {
+                @Override
+                protected Map<Locale, Map<String, DateFormat>> initialValue() {
+                    return new LruMap<>(MAX_LOCALES);
+                }
+            };
+
+    private static DateFormat get(String pattern) {
+        return get(pattern, Locale.getDefault());
+    }
+
+    private static DateFormat get(@NonNull String pattern, @NonNull Locale locale) {
+        val cache = cacheFor(locale);
+        DateFormat format = cache.get(pattern);
+        if (format == null) {
+            format = new SimpleDateFormat(pattern, locale);
+            cache.put(pattern, format);
+        }
+        return format;
+    }
+
+    /**
+     * Formats specified date with the short date-time format of default locale.
+     *
+     * @param date the date
+     * @return the formatted string
+     * @throws NullPointerException if the date is null
+     */
+    public static String formatShortDateTime(@NonNull Date date) {
+        return getShortDateTime().format(date);
+    }
+
+    private static DateFormat getShortDateTime() {
+        val locale = Locale.getDefault();
+        val cache = cacheFor(locale);
+        DateFormat format = cache.get(SHORT_DATE_TIME);
+        if (format == null) {
+            format = DateFormat.getDateTimeInstance(DateFormat.SHORT, DateFormat.SHORT, locale);
+            cache.put(SHORT_DATE_TIME, format);
+        }
+        return format;
+    }
+
+    /**
+     * Formats specified date with specified pattern.
+     *
+     * @param date    the date
+     * @param pattern the pattern of {@code SimpleDateFormat}
+     * @return the formatted string
+     * @throws NullPointerException     if the date or pattern is null
+     * @throws IllegalArgumentException if the pattern is invalid
+     */
+    public static String format(@NonNull Date date, String pattern) {
+        return get(pattern).format(date);
+    }
+
+    /**
+     * Parses specified string with specified pattern.
+     *
+     * @param str     the string
+     * @param pattern the pattern of {@code SimpleDateFormat}
+     * @return the parsed date
+     * @throws NullPointerException     if the string or pattern is null
+     * @throws IllegalArgumentException if the pattern is invalid
+     * @throws ParseException           if the string cannot be parsed
+     */
+    public static Date parse(@NonNull String str, String pattern) throws ParseException {
+        return get(pattern).parse(str);
+    }
+
+    private static Map<String, DateFormat> cacheFor(Locale locale) {
+        val caches = formats.get();
+        Map<String, DateFormat> cache = caches.get(locale);
+        if (cache == null) {
+            cache = new LruMap<>(MAX_FORMATS);
+            caches.put(locale, cache);
+        }
+        return cache;
+    }
+
+    /**
+     * Map removing the least recently used entry when the capacity is exceeded.
+     */
+    private static class LruMap<K, V> extends LinkedHashMap<K, V> {
+        private final int capacity;
+
+        LruMap(int capacity) {
+            super(16, 0.75F, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+            return size() > capacity;
+        }
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2017 Peng Wan <phylame@163.com>
+ *
+ * This file is part of Jem.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jem.util;
+
+import jclp.log.Log;
+import lombok.NonNull;
+import lombok.val;
+
+import java.lang.ref.PhantomReference;
+import java.lang.ref.ReferenceQueue;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static jclp.util.Validate.require;
+
+/**
+ * Detector for objects that are garbage collected without being cleaned up.
+ * <p>
+ * The detector is disabled by default. When enabled, only a sample of tracked objects is watched with a
+ * phantom reference, and collected leaks are reported when new objects are tracked.
+ * </p>
+ * <p>
+ * The sampling rate can be set by system property {@code jem.leakDetection.rate} or {@link #setRate(double)}.
+ * </p>
+ */
+public final class LeakDetector {
+    private LeakDetector() {
+    }
+
+    private static final String TAG = "LeakDetector";
+
+    private static volatile double rate = initRate();
+
+    private static final ReferenceQueue<Object> queue = new ReferenceQueue<>();
+
+    private static final Set<Trace> traces = Collections.newSetFromMap(new ConcurrentHashMap<Trace, Boolean>());
+
+    /**
+     * Returns the sampling rate of tracked objects.
+     *
+     * @return the rate, {@literal 0} if the detector is disabled
+     */
+    public static double getRate() {
+        return rate;
+    }
+
+    /**
+     * Sets the sampling rate of tracked objects.
+     *
+     * @param rate the rate between {@literal 0} (disabled) and {@literal 1} (track all)
+     * @throws IllegalArgumentException if the rate is out of range
+     */
+    public static void setRate(double rate) {
+        require(rate >= 0 && rate <= 1, "rate must be in [0, 1]: %s", rate);
+        LeakDetector.rate = rate;
+    }
+
+    /**
+     * Starts to watch specified object if it is sampled.
+     *
+     * @param obj  the object to be watched
+     * @param hint the object describing the watched object in leak report
+     * @return the trace for the object, or {@literal null} if it is not watched
+     * @throws NullPointerException if the object is null
+     */
+    public static Trace track(@NonNull Object obj, Object hint) {
+        val rate = LeakDetector.rate;
+        if (rate <= 0 || rate < 1 && ThreadLocalRandom.current().nextDouble() >= rate) {
+            return null;
+        }
+        report();
+        val trace = new Trace(obj, hint);
+        traces.add(trace);
+        return trace;
+    }
+
+    private static void report() {
+        Trace trace;
+        while ((trace = (Trace) queue.poll()) != null) {
+            if (traces.remove(trace)) {
+                Log.w(TAG, "{0} is not cleaned: {1}", trace.type, trace.hint);
+            }
+        }
+    }
+
+    private static double initRate() {
+        try {
+            val value = System.getProperty("jem.leakDetection.rate");
+            return value != null ? Math.max(0, Math.min(1, Double.parseDouble(value))) : 0;
+        } catch (NumberFormatException | SecurityException e) {
+            Log.e(TAG, "invalid leak detection rate", e);
+            return 0;
+        }
+    }
+
+    /**
+     * Trace of a watched object.
+     */
+    public static final class Trace extends PhantomReference<Object> {
+        private final String type;
+
+        private volatile Object hint;
+
+        private Trace(Object obj, Object hint) {
+            super(obj, queue);
+            this.type = obj.getClass().getSimpleName();
+            this.hint = hint;
+        }
+
+        /**
+         * Sets the object describing the watched object.
+         *
+         * @param hint the hint object
+         */
+        public void setHint(Object hint) {
+            this.hint = hint;
+        }
+
+        /**
+         * Stops watching the object, called when the object is cleaned up.
+         */
+        public void close() {
+            traces.remove(this);
+            clear();
+        }
+    }
+}
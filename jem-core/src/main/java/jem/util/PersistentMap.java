@@ -0,0 +1,337 @@
+/*
+ * Copyright 2017 Peng Wan <phylame@163.com>
+ *
+ * This file is part of Jem.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jem.util;
+
+import lombok.val;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable hash array mapped trie with string keys.
+ * <p>
+ * Updates return a new map sharing all unchanged nodes with the old one, so keeping old versions is cheap.
+ * </p>
+ */
+final class PersistentMap {
+    static final PersistentMap EMPTY = new PersistentMap(null, 0);
+
+    private static final int BITS = 5;
+
+    private static final int MASK = (1 << BITS) - 1;
+
+    private final Node root;
+
+    private final int size;
+
+    private PersistentMap(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean containsKey(String key) {
+        return root != null && root.find(0, key.hashCode(), key) != null;
+    }
+
+    Object get(String key) {
+        return root != null ? root.find(0, key.hashCode(), key) : null;
+    }
+
+    /**
+     * Returns a map with specified value associated with specified key.
+     *
+     * @param key   the key
+     * @param value the value, not {@literal null}
+     * @return the new map, or this map if nothing is changed
+     */
+    PersistentMap put(String key, Object value) {
+        val added = new boolean[1];
+        val node = (root != null ? root : BitmapNode.EMPTY).assoc(0, key.hashCode(), key, value, added);
+        return node != root ? new PersistentMap(node, added[0] ? size + 1 : size) : this;
+    }
+
+    /**
+     * Returns a map without specified key.
+     *
+     * @param key the key
+     * @return the new map, or this map if the key is not present
+     */
+    PersistentMap remove(String key) {
+        if (root == null) {
+            return this;
+        }
+        val node = root.without(0, key.hashCode(), key);
+        return node != root ? node != null ? new PersistentMap(node, size - 1) : EMPTY : this;
+    }
+
+    /**
+     * Returns all entries of the map in an unspecified order.
+     *
+     * @return list of entries
+     */
+    List<Map.Entry<String, Object>> entries() {
+        val entries = new ArrayList<Map.Entry<String, Object>>(size);
+        if (root != null) {
+            root.collect(entries);
+        }
+        return entries;
+    }
+
+    /**
+     * Copies all names and values to specified array, as {@code [name0, value0, name1, value1, ...]}.
+     *
+     * @param array the array, length of which must be at least twice of the size
+     */
+    void copyTo(Object[] array) {
+        if (root != null) {
+            root.copyTo(array, 0);
+        }
+    }
+
+    private static int bitOf(int hash, int shift) {
+        return 1 << ((hash >>> shift) & MASK);
+    }
+
+    private static Node createNode(int shift, String key1, Object value1, int hash2, String key2, Object value2) {
+        val hash1 = key1.hashCode();
+        if (hash1 == hash2) {
+            return new CollisionNode(hash1, new Object[]{key1, value1, key2, value2});
+        }
+        val added = new boolean[1];
+        return BitmapNode.EMPTY
+                .assoc(shift, hash1, key1, value1, added)
+                .assoc(shift, hash2, key2, value2, added);
+    }
+
+    private static Object[] insertPair(Object[] array, int index, Object key, Object value) {
+        val copy = new Object[array.length + 2];
+        System.arraycopy(array, 0, copy, 0, index);
+        copy[index] = key;
+        copy[index + 1] = value;
+        System.arraycopy(array, index, copy, index + 2, array.length - index);
+        return copy;
+    }
+
+    private static Object[] removePair(Object[] array, int index) {
+        val copy = new Object[array.length - 2];
+        System.arraycopy(array, 0, copy, 0, index);
+        System.arraycopy(array, index + 2, copy, index, array.length - index - 2);
+        return copy;
+    }
+
+    private static Object[] replace(Object[] array, int index, Object value) {
+        val copy = array.clone();
+        copy[index] = value;
+        return copy;
+    }
+
+    private static abstract class Node {
+        abstract Object find(int shift, int hash, String key);
+
+        abstract Node assoc(int shift, int hash, String key, Object value, boolean[] added);
+
+        /**
+         * Returns the node without specified key, {@literal null} if the node becomes empty.
+         */
+        abstract Node without(int shift, int hash, String key);
+
+        abstract void collect(List<Map.Entry<String, Object>> entries);
+
+        /**
+         * Copies names and values to the array from specified offset, returns the offset after last entry.
+         */
+        abstract int copyTo(Object[] array, int offset);
+    }
+
+    /**
+     * Node with up to 32 slots, each slot holds a key and value, or {@literal null} and a sub-node.
+     */
+    private static final class BitmapNode extends Node {
+        static final BitmapNode EMPTY = new BitmapNode(0, new Object[0]);
+
+        private final int bitmap;
+
+        private final Object[] array;
+
+        BitmapNode(int bitmap, Object[] array) {
+            this.bitmap = bitmap;
+            this.array = array;
+        }
+
+        private int indexOf(int bit) {
+            return Integer.bitCount(bitmap & (bit - 1)) * 2;
+        }
+
+        @Override
+        Object find(int shift, int hash, String key) {
+            val bit = bitOf(hash, shift);
+            if ((bitmap & bit) == 0) {
+                return null;
+            }
+            val index = indexOf(bit);
+            val k = array[index];
+            if (k == null) {
+                return ((Node) array[index + 1]).find(shift + BITS, hash, key);
+            }
+            return k == key || k.equals(key) ? array[index + 1] : null;
+        }
+
+        @Override
+        Node assoc(int shift, int hash, String key, Object value, boolean[] added) {
+            val bit = bitOf(hash, shift);
+            val index = indexOf(bit);
+            if ((bitmap & bit) == 0) {
+                added[0] = true;
+                return new BitmapNode(bitmap | bit, insertPair(array, index, key, value));
+            }
+            val k = array[index];
+            val v = array[index + 1];
+            if (k == null) {
+                val node = (Node) v;
+                val sub = node.assoc(shift + BITS, hash, key, value, added);
+                return sub != node ? new BitmapNode(bitmap, replace(array, index + 1, sub)) : this;
+            }
+            if (k == key || k.equals(key)) {
+                return v != value ? new BitmapNode(bitmap, replace(array, index + 1, value)) : this;
+            }
+            added[0] = true;
+            val copy = array.clone();
+            copy[index] = null;
+            copy[index + 1] = createNode(shift + BITS, (String) k, v, hash, key, value);
+            return new BitmapNode(bitmap, copy);
+        }
+
+        @Override
+        Node without(int shift, int hash, String key) {
+            val bit = bitOf(hash, shift);
+            if ((bitmap & bit) == 0) {
+                return this;
+            }
+            val index = indexOf(bit);
+            val k = array[index];
+            if (k == null) {
+                val node = (Node) array[index + 1];
+                val sub = node.without(shift + BITS, hash, key);
+                if (sub == node) {
+                    return this;
+                } else if (sub != null) {
+                    return new BitmapNode(bitmap, replace(array, index + 1, sub));
+                }
+            } else if (k != key && !k.equals(key)) {
+                return this;
+            }
+            return bitmap != bit ? new BitmapNode(bitmap ^ bit, removePair(array, index)) : null;
+        }
+
+        @Override
+        void collect(List<Map.Entry<String, Object>> entries) {
+            for (int i = 0; i < array.length; i += 2) {
+                if (array[i] == null) {
+                    ((Node) array[i + 1]).collect(entries);
+                } else {
+                    entries.add(new AbstractMap.SimpleImmutableEntry<>((String) array[i], array[i + 1]));
+                }
+            }
+        }
+
+        @Override
+        int copyTo(Object[] array, int offset) {
+            for (int i = 0; i < this.array.length; i += 2) {
+                if (this.array[i] == null) {
+                    offset = ((Node) this.array[i + 1]).copyTo(array, offset);
+                } else {
+                    array[offset++] = this.array[i];
+                    array[offset++] = this.array[i + 1];
+                }
+            }
+            return offset;
+        }
+    }
+
+    /**
+     * Node for keys with the same hash code.
+     */
+    private static final class CollisionNode extends Node {
+        private final int hash;
+
+        private final Object[] array;
+
+        CollisionNode(int hash, Object[] array) {
+            this.hash = hash;
+            this.array = array;
+        }
+
+        private int indexOf(String key) {
+            for (int i = 0; i < array.length; i += 2) {
+                if (array[i] == key || array[i].equals(key)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        Object find(int shift, int hash, String key) {
+            val index = indexOf(key);
+            return index != -1 ? array[index + 1] : null;
+        }
+
+        @Override
+        Node assoc(int shift, int hash, String key, Object value, boolean[] added) {
+            if (hash != this.hash) { // nest this node in a bitmap node
+                return new BitmapNode(bitOf(this.hash, shift), new Object[]{null, this})
+                        .assoc(shift, hash, key, value, added);
+            }
+            val index = indexOf(key);
+            if (index == -1) {
+                added[0] = true;
+                return new CollisionNode(hash, insertPair(array, array.length, key, value));
+            }
+            return array[index + 1] != value ? new CollisionNode(hash, replace(array, index + 1, value)) : this;
+        }
+
+        @Override
+        Node without(int shift, int hash, String key) {
+            val index = indexOf(key);
+            if (index == -1) {
+                return this;
+            }
+            return array.length != 2 ? new CollisionNode(hash, removePair(array, index)) : null;
+        }
+
+        @Override
+        void collect(List<Map.Entry<String, Object>> entries) {
+            for (int i = 0; i < array.length; i += 2) {
+                entries.add(new AbstractMap.SimpleImmutableEntry<>((String) array[i], array[i + 1]));
+            }
+        }
+
+        @Override
+        int copyTo(Object[] array, int offset) {
+            System.arraycopy(this.array, 0, array, offset, this.array.length);
+            return offset + this.array.length;
+        }
+    }
+}
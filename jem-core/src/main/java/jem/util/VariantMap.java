@@ -20,24 +20,66 @@ package jem.util;
 
 import jclp.function.EntryToPair;
 import jclp.value.Pair;
+import lombok.Getter;
 import lombok.NonNull;
 import lombok.SneakyThrows;
+import lombok.Setter;
 import lombok.val;
 
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.Map;
-import java.util.Set;
+import java.util.*;
 
 import static jclp.util.CollectionUtils.map;
 import static jclp.util.StringUtils.isEmpty;
 import static jclp.util.Validate.requireNotEmpty;
 import static jclp.util.Validate.requireNotNull;
 
+/**
+ * Map of named values.
+ * <p>
+ * Small maps keep names and values in one array and search it linearly, names are compared by identity before
+ * equality so constant names are found quickly. The map is promoted to a persistent hash trie when it grows,
+ * updates of the trie share unchanged nodes with clones, so cloning maps of any size is cheap.
+ * </p>
+ */
 public class VariantMap implements Iterable<Pair<String, Object>>, Cloneable {
+    /**
+     * Max number of entries stored in array.
+     */
+    private static final int ARRAY_LIMIT = 8;
+
+    /**
+     * Shared empty array, never modified.
+     */
+    private static final Object[] NO_ENTRIES = new Object[0];
+
     private Validator validator;
 
-    private HashMap<String, Object> values = new HashMap<>();
+    /**
+     * Listener for changes of values, optional.
+     */
+    @Getter
+    @Setter
+    private Listener listener;
+
+    /**
+     * Names and values in array mode, as {@code [name0, value0, name1, value1, ...]}, {@literal null} in trie mode.
+     */
+    private Object[] entries = NO_ENTRIES;
+
+    /**
+     * Number of entries in array mode.
+     */
+    private int count = 0;
+
+    /**
+     * Values in trie mode, {@literal null} in array mode.
+     */
+    private PersistentMap tree = null;
+
+    /**
+     * The array is shared with clones or is {@code NO_ENTRIES}, and must be copied before modifying.
+     */
+    private boolean shared = true;
 
     public VariantMap() {
         this(null);
@@ -53,11 +95,66 @@ public class VariantMap implements Iterable<Pair<String, Object>>, Cloneable {
         if (validator != null) {
             validator.validate(name, value);
         }
-        return values.put(name, value);
+        return setUnchecked(name, value);
+    }
+
+    /**
+     * Sets value without checking the name and value.
+     * <p>
+     * This method is designed for parsers and other trusted sources which produce values of correct types.
+     * Values set by this method can be checked later with {@link #validate()}.
+     * </p>
+     *
+     * @param name  name of the value, must not be empty
+     * @param value the value, must not be null
+     * @return the previous value, or {@literal null} if not present
+     */
+    public Object setUnchecked(String name, Object value) {
+        val old = put(name, value);
+        if (listener != null) {
+            listener.variantChanged(this, name, old, value);
+        }
+        return old;
+    }
+
+    /**
+     * Checks all values with the validator of this map.
+     *
+     * @throws IllegalArgumentException if any value is invalid
+     */
+    public void validate() throws IllegalArgumentException {
+        if (validator == null) {
+            return;
+        }
+        val it = entries();
+        while (it.hasNext()) {
+            val entry = it.next();
+            validator.validate(entry.getKey(), entry.getValue());
+        }
     }
 
+    /**
+     * Copies all values in specified map to this map.
+     * <p>
+     * If the maps have the same validator, values are not checked again.
+     * </p>
+     *
+     * @param others the map to be copied
+     * @throws NullPointerException if the map is null
+     */
     public void update(@NonNull VariantMap others) {
-        update(others.values);
+        if (others.validator != validator) {
+            update(others.entries());
+        } else if (others.tree != null) {
+            for (val entry : others.tree.entries()) {
+                setUnchecked(entry.getKey(), entry.getValue());
+            }
+        } else {
+            val entries = others.entries;
+            for (int i = 0, end = others.count * 2; i < end; i += 2) {
+                setUnchecked((String) entries[i], entries[i + 1]);
+            }
+        }
     }
 
     public void update(@NonNull Map<String, Object> values) {
@@ -74,59 +171,443 @@ public class VariantMap implements Iterable<Pair<String, Object>>, Cloneable {
     }
 
     public boolean contains(String name) {
-        return !isEmpty(name) && values.containsKey(name);
+        if (isEmpty(name)) {
+            return false;
+        }
+        return tree != null ? tree.containsKey(name) : indexOf(name) != -1;
     }
 
     public Set<String> names() {
-        return values.keySet();
+        if (tree != null) {
+            val names = new HashSet<String>(tree.size() * 2);
+            for (val entry : tree.entries()) {
+                names.add(entry.getKey());
+            }
+            return Collections.unmodifiableSet(names);
+        }
+        val names = new LinkedHashSet<String>(count * 2);
+        for (int i = 0, end = count * 2; i < end; i += 2) {
+            names.add((String) entries[i]);
+        }
+        return Collections.unmodifiableSet(names);
     }
 
     public Object get(String name) {
-        return isEmpty(name) ? null : values.get(name);
+        if (isEmpty(name)) {
+            return null;
+        }
+        if (tree != null) {
+            return tree.get(name);
+        }
+        val index = indexOf(name);
+        return index != -1 ? entries[index + 1] : null;
     }
 
     @SuppressWarnings("unchecked")
     public <T> T get(String name, T fallback) {
-        if (isEmpty(name)) {
-            return fallback;
-        }
-        val value = values.get(name);
+        val value = get(name);
         return value != null ? (T) value : fallback;
     }
 
+    /**
+     * Returns the value of specified name as an int.
+     * <p>
+     * Numbers are converted with {@link Number#intValue()} and strings are parsed as decimal.
+     * </p>
+     *
+     * @param name     name of the value
+     * @param fallback the value returned if the value is not present or cannot be converted
+     * @return the int value
+     */
+    public int getInt(String name, int fallback) {
+        val value = get(name);
+        if (value instanceof Number) {
+            return ((Number) value).intValue();
+        } else if (value instanceof String) {
+            try {
+                val number = Long.parseLong(((String) value).trim());
+                return number == (int) number ? (int) number : fallback;
+            } catch (NumberFormatException e) {
+                return fallback;
+            }
+        }
+        return fallback;
+    }
+
+    /**
+     * Returns the value of specified name as a long.
+     *
+     * @param name     name of the value
+     * @param fallback the value returned if the value is not present or cannot be converted
+     * @return the long value
+     * @see #getInt(String, int)
+     */
+    public long getLong(String name, long fallback) {
+        val value = get(name);
+        if (value instanceof Number) {
+            return ((Number) value).longValue();
+        } else if (value instanceof String) {
+            try {
+                return Long.parseLong(((String) value).trim());
+            } catch (NumberFormatException e) {
+                return fallback;
+            }
+        }
+        return fallback;
+    }
+
+    /**
+     * Returns the value of specified name as a double.
+     *
+     * @param name     name of the value
+     * @param fallback the value returned if the value is not present or cannot be converted
+     * @return the double value
+     * @see #getInt(String, int)
+     */
+    public double getDouble(String name, double fallback) {
+        val value = get(name);
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        } else if (value instanceof String) {
+            try {
+                return Double.parseDouble(((String) value).trim());
+            } catch (NumberFormatException e) {
+                return fallback;
+            }
+        }
+        return fallback;
+    }
+
+    /**
+     * Returns the value of specified name as a boolean.
+     * <p>
+     * Strings {@literal "true"} and {@literal "false"} are accepted ignoring case.
+     * </p>
+     *
+     * @param name     name of the value
+     * @param fallback the value returned if the value is not present or cannot be converted
+     * @return the boolean value
+     */
+    public boolean getBoolean(String name, boolean fallback) {
+        val value = get(name);
+        if (value instanceof Boolean) {
+            return (Boolean) value;
+        } else if (value instanceof String) {
+            val str = ((String) value).trim();
+            if (str.equalsIgnoreCase("true")) {
+                return true;
+            } else if (str.equalsIgnoreCase("false")) {
+                return false;
+            }
+        }
+        return fallback;
+    }
+
     public int size() {
-        return values.size();
+        return tree != null ? tree.size() : count;
     }
 
     @Override
     public Iterator<Pair<String, Object>> iterator() {
-        return map(values.entrySet().iterator(), new EntryToPair<String, Object>());
+        return map(entries(), new EntryToPair<String, Object>());
+    }
+
+    /**
+     * Performs specified action for each name and value in this map.
+     *
+     * @param visitor the action to be performed
+     * @throws NullPointerException if the visitor is null
+     */
+    public void forEach(@NonNull Visitor visitor) {
+        if (tree != null) {
+            val cursor = new Cursor(this);
+            while (cursor.next()) {
+                visitor.visit(cursor.getName(), cursor.getValue());
+            }
+        } else {
+            val entries = this.entries;
+            for (int i = 0, end = count * 2; i < end; i += 2) {
+                visitor.visit((String) entries[i], entries[i + 1]);
+            }
+        }
+    }
+
+    /**
+     * Returns a cursor over names and values in this map.
+     *
+     * @return the cursor
+     */
+    public Cursor cursor() {
+        return new Cursor(this);
     }
 
     public Object remove(String name) {
-        return isEmpty(name) ? null : values.remove(name);
+        if (!contains(name)) {
+            return null;
+        }
+        Object old;
+        if (tree != null) {
+            old = tree.get(name);
+            tree = tree.remove(name);
+        } else {
+            own();
+            val index = indexOf(name);
+            old = entries[index + 1];
+            System.arraycopy(entries, index + 2, entries, index, count * 2 - index - 2);
+            --count;
+            entries[count * 2] = entries[count * 2 + 1] = null;
+        }
+        if (listener != null) {
+            listener.variantChanged(this, name, old, null);
+        }
+        return old;
     }
 
     public void clear() {
-        values.clear();
+        if (size() == 0) {
+            return;
+        }
+        if (shared || tree != null) {
+            entries = NO_ENTRIES;
+            tree = null;
+            shared = true;
+        } else {
+            Arrays.fill(entries, 0, count * 2, null);
+        }
+        count = 0;
+        if (listener != null) {
+            listener.variantChanged(this, null, null, null);
+        }
     }
 
+    private int indexOf(String name) {
+        val hash = name.hashCode();
+        for (int i = 0, end = count * 2; i < end; i += 2) {
+            val key = entries[i];
+            if (key == name || key.hashCode() == hash && key.equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private Object put(String name, Object value) {
+        if (tree != null) {
+            val old = tree.get(name);
+            tree = tree.put(name, value);
+            return old;
+        }
+        own();
+        val index = indexOf(name);
+        if (index != -1) {
+            val old = entries[index + 1];
+            entries[index + 1] = value;
+            return old;
+        }
+        if (count == ARRAY_LIMIT) { // promote to trie mode
+            PersistentMap map = PersistentMap.EMPTY;
+            for (int i = 0, end = count * 2; i < end; i += 2) {
+                map = map.put((String) entries[i], entries[i + 1]);
+            }
+            tree = map.put(name, value);
+            entries = null;
+            count = 0;
+            return null;
+        }
+        if (count * 2 == entries.length) {
+            entries = Arrays.copyOf(entries, Math.max(4, entries.length * 2));
+        }
+        entries[count * 2] = name;
+        entries[count * 2 + 1] = value;
+        ++count;
+        return null;
+    }
+
+    private void own() {
+        if (shared) {
+            if (entries != NO_ENTRIES) { // may be shared even if all entries are removed
+                entries = entries.clone();
+            }
+            shared = false;
+        }
+    }
+
+    private Iterator<Map.Entry<String, Object>> entries() {
+        return tree != null ? Collections.unmodifiableList(tree.entries()).iterator() : new ArrayIterator();
+    }
+
+    /**
+     * Creates a copy of this map.
+     * <p>
+     * Values are shared by this map and the copy until either of them is modified, maps in trie mode only copy
+     * the modified path of the trie.
+     * </p>
+     *
+     * @return the copy
+     */
     @Override
-    @SuppressWarnings("unchecked")
     @SneakyThrows(CloneNotSupportedException.class)
     public VariantMap clone() {
         val copy = (VariantMap) super.clone();
-        copy.values = (HashMap<String, Object>) values.clone();
+        shared = copy.shared = true;
         copy.validator = validator;
+        copy.listener = null;
         return copy;
     }
 
     @Override
     public String toString() {
-        return values.toString();
+        val b = new StringBuilder().append('{');
+        val it = entries();
+        while (it.hasNext()) {
+            val entry = it.next();
+            b.append(entry.getKey()).append('=').append(entry.getValue());
+            if (it.hasNext()) {
+                b.append(", ");
+            }
+        }
+        return b.append('}').toString();
+    }
+
+    private class ArrayIterator implements Iterator<Map.Entry<String, Object>> {
+        private final Object[] entries = VariantMap.this.entries;
+        private final int end = count * 2;
+        private int index = 0;
+
+        @Override
+        public boolean hasNext() {
+            return index < end;
+        }
+
+        @Override
+        public Map.Entry<String, Object> next() {
+            if (index >= end) {
+                throw new NoSuchElementException();
+            }
+            val entry = new AbstractMap.SimpleImmutableEntry<>((String) entries[index], entries[index + 1]);
+            index += 2;
+            return entry;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * Reusable cursor over names and values of a map.
+     * <p>
+     * No object is created for each entry, and the cursor can be reset to traverse other maps. The map must not
+     * be modified during traversal.
+     * </p>
+     */
+    public static final class Cursor {
+        private Object[] entries;
+
+        /**
+         * Buffer for maps in trie mode, reused after reset.
+         */
+        private Object[] buffer;
+
+        private int end;
+
+        private int index;
+
+        public Cursor() {
+            reset(null);
+        }
+
+        public Cursor(VariantMap map) {
+            reset(map);
+        }
+
+        /**
+         * Resets this cursor to traverse specified map from the first entry.
+         *
+         * @param map the map, or {@literal null} to release referenced entries
+         * @return this cursor
+         */
+        public Cursor reset(VariantMap map) {
+            if (map == null) {
+                if (buffer != null) {
+                    Arrays.fill(buffer, null);
+                }
+                entries = NO_ENTRIES;
+                end = 0;
+            } else if (map.tree != null) {
+                end = map.tree.size() * 2;
+                if (buffer == null || buffer.length < end) {
+                    buffer = new Object[end];
+                }
+                map.tree.copyTo(buffer);
+                entries = buffer;
+            } else {
+                entries = map.entries;
+                end = map.count * 2;
+            }
+            index = -2;
+            return this;
+        }
+
+        /**
+         * Moves to the next entry.
+         *
+         * @return {@literal true} if the entry is present, otherwise no more entries
+         */
+        public boolean next() {
+            if (index < end) {
+                index += 2;
+            }
+            return index < end;
+        }
+
+        /**
+         * Returns name of current entry.
+         *
+         * @return the name
+         * @throws NoSuchElementException if the cursor is not on an entry
+         */
+        public String getName() {
+            checkIndex();
+            return (String) entries[index];
+        }
+
+        /**
+         * Returns value of current entry.
+         *
+         * @return the value
+         * @throws NoSuchElementException if the cursor is not on an entry
+         */
+        public Object getValue() {
+            checkIndex();
+            return entries[index + 1];
+        }
+
+        private void checkIndex() {
+            if (index < 0 || index >= end) {
+                throw new NoSuchElementException();
+            }
+        }
+    }
+
+    public interface Visitor {
+        void visit(String name, Object value);
     }
 
     public interface Validator {
         void validate(String name, Object value) throws IllegalArgumentException;
     }
+
+    public interface Listener {
+        /**
+         * Invoked when a value is set or removed.
+         *
+         * @param map      the changed map
+         * @param name     name of the value, or {@literal null} if all values are removed
+         * @param oldValue the previous value, or {@literal null} if not present
+         * @param newValue the new value, or {@literal null} if the value is removed
+         */
+        void variantChanged(VariantMap map, String name, Object oldValue, Object newValue);
+    }
 }
@@ -18,7 +18,6 @@
 
 package jem.util;
 
-import jclp.function.Function;
 import jclp.function.Provider;
 import jclp.io.IOUtils;
 import jclp.log.Log;
@@ -36,10 +35,8 @@ import lombok.val;
 import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
-import java.text.DateFormat;
 import java.util.*;
 
-import static jclp.util.CollectionUtils.getOrPut;
 import static jclp.util.CollectionUtils.propertiesFor;
 import static jclp.util.StringUtils.isNotEmpty;
 import static jclp.util.Validate.requireNotEmpty;
@@ -47,6 +44,10 @@ import static jclp.util.Validate.requireNotNull;
 
 /**
  * Utilities for values used in Jem.
+ * <p>
+ * Type registries are immutable snapshots replaced on registration, so lookups are lock-free and can be done
+ * from multiple threads.
+ * </p>
  */
 public final class Variants {
     private Variants() {
@@ -64,11 +65,21 @@ public final class Variants {
     public static final String LOCALE = "locale";
     public static final String DATETIME = "datetime";
 
-    private static Map<String, Class<?>> typeMappings = new HashMap<>();
+    /**
+     * Lock for registration of types and defaults.
+     */
+    private static final Object lock = new Object();
+
+    private static volatile Map<String, Class<?>> typeMappings = Collections.emptyMap();
 
-    private static Map<Class<?>, String> classMappings = new IdentityHashMap<>();
+    private static volatile Map<Class<?>, String> classMappings = Collections.emptyMap();
 
-    private static Map<String, Object> typeDefaults = new HashMap<>();
+    private static volatile Map<String, Object> typeDefaults = Collections.emptyMap();
+
+    /**
+     * Cache of resolved type names for value classes, replaced when a class is mapped.
+     */
+    private static volatile ClassValue<String> classTypes = new ClassTypes(classMappings);
 
     /**
      * Returns a set containing all type names.
@@ -88,8 +99,15 @@ public final class Variants {
      */
     public static void mapClass(String type, @NonNull Class<?> clazz) {
         requireNotEmpty(type, "type name cannot be null or empty");
-        typeMappings.put(type, clazz);
-        classMappings.put(clazz, type);
+        synchronized (lock) {
+            val types = new HashMap<String, Class<?>>(typeMappings);
+            types.put(type, clazz);
+            val classes = new IdentityHashMap<Class<?>, String>(classMappings);
+            classes.put(clazz, type);
+            typeMappings = Collections.unmodifiableMap(types);
+            classMappings = Collections.unmodifiableMap(classes);
+            classTypes = new ClassTypes(classMappings);
+        }
     }
 
     /**
@@ -110,17 +128,7 @@ public final class Variants {
      * @throws NullPointerException if the value is null
      */
     public static String getType(@NonNull Object value) {
-        return getOrPut(classMappings, value.getClass(), false, new Function<Class<?>, String>() {
-            @Override
-            public String apply(Class<?> clazz) {
-                for (val entry : classMappings.entrySet()) {
-                    if (entry.getKey().isAssignableFrom(clazz)) {
-                        return entry.getValue();
-                    }
-                }
-                return null;
-            }
-        });
+        return classTypes.get(value.getClass());
     }
 
     /**
@@ -134,7 +142,11 @@ public final class Variants {
      */
     public static void setDefault(String type, Object value) {
         requireNotEmpty(type, "type name cannot be null or empty");
-        typeDefaults.put(type, value);
+        synchronized (lock) {
+            val defaults = new HashMap<String, Object>(typeDefaults);
+            defaults.put(type, value);
+            typeDefaults = Collections.unmodifiableMap(defaults);
+        }
     }
 
     /**
@@ -179,7 +191,7 @@ public final class Variants {
             case FLOB:
                 return value.toString();
             case DATETIME:
-                return DateFormat.getDateTimeInstance(DateFormat.SHORT, DateFormat.SHORT).format((Date) value);
+                return DateFormats.formatShortDateTime((Date) value);
             case LOCALE:
                 return ((Locale) value).getDisplayName();
             default:
@@ -272,6 +284,28 @@ public final class Variants {
         });
     }
 
+    private static class ClassTypes extends ClassValue<String> {
+        private final Map<Class<?>, String> mappings;
+
+        private ClassTypes(Map<Class<?>, String> mappings) {
+            this.mappings = mappings;
+        }
+
+        @Override
+        protected String computeValue(Class<?> clazz) {
+            val type = mappings.get(clazz);
+            if (type != null) {
+                return type;
+            }
+            for (val entry : mappings.entrySet()) {
+                if (entry.getKey().isAssignableFrom(clazz)) {
+                    return entry.getValue();
+                }
+            }
+            return null;
+        }
+    }
+
     static {
         initBuiltins();
         initDefaults();
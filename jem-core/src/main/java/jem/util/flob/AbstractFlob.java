@@ -21,11 +21,17 @@ package jem.util.flob;
 import jclp.io.IOUtils;
 import jclp.io.PathUtils;
 import lombok.Getter;
+import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 import lombok.val;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.CompletionHandler;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.Future;
 
 @RequiredArgsConstructor
 public abstract class AbstractFlob implements Flob {
@@ -34,6 +40,11 @@ public abstract class AbstractFlob implements Flob {
     @Getter(lazy = true)
     private final String mime = PathUtils.mimeOrDetect(getName(), mimeType);
 
+    @Override
+    public long length() {
+        return -1;
+    }
+
     @Override
     public long writeTo(OutputStream output) throws IOException {
         try (val input = openStream()) {
@@ -41,6 +52,72 @@ public abstract class AbstractFlob implements Flob {
         }
     }
 
+    @Override
+    public long transferTo(@NonNull WritableByteChannel channel) throws IOException {
+        val data = asByteBuffer();
+        if (data == null) {
+            return writeTo(Channels.newOutputStream(channel));
+        }
+        val count = data.remaining();
+        while (data.hasRemaining()) {
+            channel.write(data);
+        }
+        return count;
+    }
+
+    @Override
+    public ByteBuffer asByteBuffer() throws IOException {
+        return null;
+    }
+
+    @Override
+    public long readInto(@NonNull ByteBuffer buffer) throws IOException {
+        val data = asByteBuffer();
+        if (data != null) {
+            if (data.remaining() > buffer.remaining()) {
+                data.limit(data.position() + buffer.remaining());
+            }
+            val count = data.remaining();
+            buffer.put(data);
+            return count;
+        }
+        long total = 0;
+        try (val input = openStream()) {
+            byte[] b = buffer.hasArray() ? null : new byte[Math.min(8192, Math.max(buffer.remaining(), 1))];
+            while (buffer.hasRemaining()) {
+                int n;
+                if (b == null) {
+                    n = input.read(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+                    if (n > 0) {
+                        buffer.position(buffer.position() + n);
+                    }
+                } else {
+                    n = input.read(b, 0, Math.min(b.length, buffer.remaining()));
+                    if (n > 0) {
+                        buffer.put(b, 0, n);
+                    }
+                }
+                if (n < 0) {
+                    break;
+                }
+                total += n;
+            }
+        }
+        return total;
+    }
+
+    @Override
+    public <A> void readAsync(A attachment, @NonNull CompletionHandler<ByteBuffer, ? super A> handler) {
+        AsyncSupport.submit(this, attachment, handler);
+    }
+
+    @Override
+    public Future<ByteBuffer> readAsync() {
+        val result = new AsyncSupport.Result();
+        readAsync(null, result);
+        return result;
+    }
+
     @Override
     public String toString() {
         return getName() + ";mime=" + getMime();
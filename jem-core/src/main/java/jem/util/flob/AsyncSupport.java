@@ -0,0 +1,138 @@
+/*
+ * Copyright 2017 Peng Wan <phylame@163.com>
+ *
+ * This file is part of Jem.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jem.util.flob;
+
+import lombok.val;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.CompletionHandler;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Support for asynchronous reading of flobs without native asynchronous I/O.
+ * <p>
+ * Blocking reads are run in a shared and bounded pool of daemon threads.
+ * </p>
+ */
+final class AsyncSupport {
+    private AsyncSupport() {
+    }
+
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * Max initial capacity taken from length of flob.
+     */
+    private static final int MAX_CAPACITY_HINT = 16 << 20;
+
+    /**
+     * Reads all data of specified flob in the shared pool.
+     */
+    static <A> void submit(final Flob flob, final A attachment, final CompletionHandler<ByteBuffer, ? super A> handler) {
+        ExecutorHolder.executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                ByteBuffer buffer;
+                try {
+                    buffer = readFully(flob);
+                } catch (IOException | RuntimeException e) {
+                    handler.failed(e, attachment);
+                    return;
+                }
+                handler.completed(buffer, attachment);
+            }
+        });
+    }
+
+    /**
+     * Reads all data of specified flob until the end of data.
+     * <p>
+     * Length of the flob is only used as initial capacity, it may be reported by another source than the data.
+     * </p>
+     */
+    static ByteBuffer readFully(Flob flob) throws IOException {
+        val data = flob.asByteBuffer();
+        if (data != null) {
+            return data;
+        }
+        val length = flob.length();
+        val output = new BufferOutput(length >= 0 ? (int) Math.min(length, MAX_CAPACITY_HINT) : BUFFER_SIZE);
+        flob.writeTo(output);
+        return output.toByteBuffer();
+    }
+
+    /**
+     * Output stream exposing its buffer without copying.
+     */
+    private static class BufferOutput extends ByteArrayOutputStream {
+        BufferOutput(int size) {
+            super(size);
+        }
+
+        ByteBuffer toByteBuffer() {
+            return ByteBuffer.wrap(buf, 0, count);
+        }
+    }
+
+    /**
+     * Future completed by a {@code CompletionHandler}.
+     */
+    static class Result extends FutureTask<ByteBuffer> implements CompletionHandler<ByteBuffer, Object> {
+        private static final Callable<ByteBuffer> NOTHING = new Callable<ByteBuffer>() {
+            @Override
+            public ByteBuffer call() throws Exception {
+                throw new IllegalStateException("result is set by handler");
+            }
+        };
+
+        Result() {
+            super(NOTHING);
+        }
+
+        @Override
+        public void completed(ByteBuffer result, Object attachment) {
+            set(result);
+        }
+
+        @Override
+        public void failed(Throwable e, Object attachment) {
+            setException(e);
+        }
+    }
+
+    private static class ExecutorHolder {
+        private static final ExecutorService executor = newExecutor();
+
+        private static ExecutorService newExecutor() {
+            val counter = new AtomicInteger();
+            return Executors.newFixedThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors()),
+                    new ThreadFactory() {
+                        @Override
+                        public Thread newThread(Runnable r) {
+                            val thread = new Thread(r, "flob-reader-" + counter.incrementAndGet());
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    });
+        }
+    }
+}
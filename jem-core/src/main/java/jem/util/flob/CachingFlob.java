@@ -0,0 +1,107 @@
+/*
+ * Copyright 2017 Peng Wan <phylame@163.com>
+ *
+ * This file is part of Jem.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jem.util.flob;
+
+import lombok.NonNull;
+import lombok.val;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.CompletionHandler;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Flob caching data of another flob in a {@code FlobCache}.
+ * <p>
+ * Data of the actual flob is read once and served from the cache until it is evicted.
+ * </p>
+ */
+public class CachingFlob extends FlobWrapper {
+    private final FlobCache cache;
+
+    /**
+     * Flob reading data from the cache, reading operations are delegated to it.
+     */
+    private final Flob cached = new AbstractFlob(null) {
+        @Override
+        public String getName() {
+            return actual.getName();
+        }
+
+        @Override
+        public long length() {
+            return actual.length();
+        }
+
+        @Override
+        public InputStream openStream() throws IOException {
+            return cache.openStream(actual);
+        }
+
+        @Override
+        public ByteBuffer asByteBuffer() throws IOException {
+            val bytes = cache.bytesOf(actual);
+            return bytes != null ? ByteBuffer.wrap(bytes).asReadOnlyBuffer() : null;
+        }
+    };
+
+    public CachingFlob(@NonNull Flob actual, @NonNull FlobCache cache) {
+        super(actual);
+        this.cache = cache;
+    }
+
+    @Override
+    public InputStream openStream() throws IOException {
+        return cached.openStream();
+    }
+
+    @Override
+    public long writeTo(OutputStream output) throws IOException {
+        return cached.writeTo(output);
+    }
+
+    @Override
+    public long transferTo(WritableByteChannel channel) throws IOException {
+        return cached.transferTo(channel);
+    }
+
+    @Override
+    public ByteBuffer asByteBuffer() throws IOException {
+        return cached.asByteBuffer();
+    }
+
+    @Override
+    public long readInto(ByteBuffer buffer) throws IOException {
+        return cached.readInto(buffer);
+    }
+
+    @Override
+    public <A> void readAsync(A attachment, CompletionHandler<ByteBuffer, ? super A> handler) {
+        cached.readAsync(attachment, handler);
+    }
+
+    /**
+     * Removes cached data of the actual flob.
+     */
+    public void invalidate() {
+        cache.invalidate(actual);
+    }
+}
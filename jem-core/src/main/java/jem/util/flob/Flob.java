@@ -21,6 +21,10 @@ package jem.util.flob;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.CompletionHandler;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.Future;
 
 /**
  * A file-like object providing large and reusable binary data.
@@ -40,6 +44,15 @@ public interface Flob {
      */
     String getMime();
 
+    /**
+     * Returns the length of data of this object.
+     * <p>
+     * The length may be unknown without reading all data, e.g. for compressed entries or dynamic contents.
+     *
+     * @return number of bytes, or {@literal -1} if the length is unknown
+     */
+    long length();
+
     /**
      * Opens an {@code InputStream} for reading data of this object.
      * <p>
@@ -59,4 +72,60 @@ public interface Flob {
      * @throws IOException          if an I/O error occurs
      */
     long writeTo(OutputStream output) throws IOException;
+
+    /**
+     * Writes data of this object to specified channel.
+     * <p>
+     * Implementations may transfer data without copying to user space, e.g. by {@code FileChannel.transferTo}.
+     *
+     * @param channel the destination channel
+     * @return number of written bytes
+     * @throws NullPointerException if specified channel is null
+     * @throws IOException          if an I/O error occurs
+     */
+    long transferTo(WritableByteChannel channel) throws IOException;
+
+    /**
+     * Returns data of this object as a read-only byte buffer without copying.
+     * <p>
+     * This is an optional operation, callers should fall back to {@link #openStream()} if {@literal null}
+     * is returned.
+     *
+     * @return a new buffer positioned at the beginning of data, or {@literal null} if not supported
+     * @throws IOException if an I/O error occurs
+     */
+    ByteBuffer asByteBuffer() throws IOException;
+
+    /**
+     * Reads data of this object from the beginning into specified buffer.
+     * <p>
+     * Bytes are read until the buffer is full or all data is read.
+     *
+     * @param buffer the destination buffer
+     * @return number of read bytes
+     * @throws NullPointerException if specified buffer is null
+     * @throws IOException          if an I/O error occurs
+     */
+    long readInto(ByteBuffer buffer) throws IOException;
+
+    /**
+     * Reads all data of this object asynchronously.
+     * <p>
+     * Implementations backed by files read with {@code AsynchronousFileChannel}, others read in a shared pool
+     * of threads. The handler may be invoked by any thread, even the calling thread.
+     *
+     * @param attachment the object attached to the operation, may be {@literal null}
+     * @param handler    the handler for consuming the buffer containing all data, positioned at the beginning
+     * @param <A>        type of the attachment
+     * @throws NullPointerException if specified handler is null
+     */
+    <A> void readAsync(A attachment, CompletionHandler<ByteBuffer, ? super A> handler);
+
+    /**
+     * Reads all data of this object asynchronously.
+     *
+     * @return a future representing the buffer containing all data
+     * @see #readAsync(Object, CompletionHandler)
+     */
+    Future<ByteBuffer> readAsync();
 }
@@ -0,0 +1,359 @@
+/*
+ * Copyright 2017 Peng Wan <phylame@163.com>
+ *
+ * This file is part of Jem.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jem.util.flob;
+
+import jclp.log.Log;
+import lombok.NonNull;
+import lombok.val;
+
+import java.io.*;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static jclp.util.Validate.require;
+
+/**
+ * Bounded LRU cache for data of flobs.
+ * <p>
+ * Small data is kept on the heap, and data larger than the memory threshold is spilled to temporary files. Heap
+ * and disk usage are bounded separately, least recently used entries are evicted when either bound is exceeded.
+ * </p>
+ * <p>
+ * Limits of the default cache can be set by system properties {@code jem.flobCache.maxMemory},
+ * {@code jem.flobCache.maxDisk} and {@code jem.flobCache.memoryThreshold}, in bytes.
+ * </p>
+ */
+public final class FlobCache {
+    private static final String TAG = "FlobCache";
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private static volatile FlobCache defaultCache;
+
+    private final long maxMemory;
+
+    private final long maxDisk;
+
+    private final int memoryThreshold;
+
+    /**
+     * Entries in access order, guarded by this cache.
+     */
+    private final LinkedHashMap<Flob, Entry> entries = new LinkedHashMap<>(16, 0.75F, true);
+
+    private long memoryUsage = 0;
+
+    private long diskUsage = 0;
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Constructs a cache with specified limits.
+     *
+     * @param maxMemory       max bytes kept on the heap
+     * @param maxDisk         max bytes kept in temporary files
+     * @param memoryThreshold max size of data kept on the heap
+     * @throws IllegalArgumentException if any limit is negative
+     */
+    public FlobCache(long maxMemory, long maxDisk, int memoryThreshold) {
+        require(maxMemory >= 0 && maxDisk >= 0 && memoryThreshold >= 0, "limits cannot be negative");
+        this.maxMemory = maxMemory;
+        this.maxDisk = maxDisk;
+        this.memoryThreshold = memoryThreshold;
+    }
+
+    /**
+     * Returns the process-wide cache.
+     *
+     * @return the default cache
+     */
+    public static FlobCache getDefault() {
+        FlobCache cache = defaultCache;
+        if (cache == null) {
+            synchronized (FlobCache.class) {
+                cache = defaultCache;
+                if (cache == null) {
+                    defaultCache = cache = new FlobCache(
+                            longProperty("jem.flobCache.maxMemory", 32L << 20),
+                            longProperty("jem.flobCache.maxDisk", 256L << 20),
+                            (int) longProperty("jem.flobCache.memoryThreshold", 256L << 10));
+                }
+            }
+        }
+        return cache;
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getMemoryUsage() {
+        return memoryUsage;
+    }
+
+    public synchronized long getDiskUsage() {
+        return diskUsage;
+    }
+
+    /**
+     * Opens stream for data of specified flob, loading the data into this cache if not cached.
+     *
+     * @param flob the source flob
+     * @return the input stream
+     * @throws NullPointerException if the flob is null
+     * @throws IOException          if an I/O error occurs
+     */
+    public InputStream openStream(@NonNull Flob flob) throws IOException {
+        val entry = entryFor(flob);
+        if (entry == null) {
+            return flob.openStream();
+        }
+        try {
+            return entry.openStream();
+        } catch (FileNotFoundException e) { // temp file evicted before opened
+            return flob.openStream();
+        }
+    }
+
+    /**
+     * Returns data of specified flob if it is cached on the heap.
+     * <p>
+     * Data is loaded only if the flob is known to be small enough to be kept on the heap. Data of other flobs is
+     * loaded by {@link #openStream(Flob)}, so large flobs are not read here and read again by the stream.
+     * </p>
+     *
+     * @param flob the source flob
+     * @return the cached data, or {@literal null} if not cached on the heap
+     */
+    byte[] bytesOf(Flob flob) throws IOException {
+        val length = flob.length();
+        Entry entry;
+        if (length >= 0 && length <= memoryThreshold) {
+            entry = entryFor(flob);
+        } else {
+            synchronized (this) {
+                entry = entries.get(flob);
+            }
+        }
+        if (entry == null) {
+            return null;
+        } else if (entry.uncached && entry.file != null) { // the flob is larger than its length
+            release(entry);
+        }
+        return entry.bytes;
+    }
+
+    /**
+     * Removes cached data of specified flob.
+     *
+     * @param flob the source flob
+     */
+    public synchronized void invalidate(Flob flob) {
+        val entry = entries.remove(flob);
+        if (entry != null) {
+            release(entry);
+        }
+    }
+
+    /**
+     * Removes all cached data.
+     */
+    public synchronized void clear() {
+        for (val entry : entries.values()) {
+            release(entry);
+        }
+        entries.clear();
+    }
+
+    /**
+     * Returns the entry of specified flob, loading the data if not cached.
+     * <p>
+     * An entry too large to be cached is marked as uncached, its temporary file is deleted when the stream of
+     * the entry is closed.
+     * </p>
+     *
+     * @return the entry, or {@literal null} if the flob is known to be too large to be cached
+     */
+    private Entry entryFor(Flob flob) throws IOException {
+        synchronized (this) {
+            val entry = entries.get(flob);
+            if (entry != null) {
+                hits.incrementAndGet();
+                return entry;
+            }
+        }
+        misses.incrementAndGet();
+        val length = flob.length();
+        if (length > memoryThreshold && length > maxDisk) {
+            return null;
+        }
+        val entry = load(flob);
+        synchronized (this) {
+            val old = entries.get(flob);
+            if (old != null) { // loaded by other thread
+                entry.uncached = true;
+                release(entry);
+                return old;
+            }
+            if (entry.bytes != null ? entry.size <= maxMemory : entry.size <= maxDisk) {
+                entries.put(flob, entry);
+                if (entry.bytes != null) {
+                    memoryUsage += entry.size;
+                } else {
+                    diskUsage += entry.size;
+                }
+                evict();
+            } else {
+                entry.uncached = true;
+            }
+        }
+        return entry;
+    }
+
+    private void evict() {
+        val it = entries.values().iterator();
+        while ((memoryUsage > maxMemory || diskUsage > maxDisk) && it.hasNext()) {
+            val entry = it.next();
+            if (entry.bytes != null ? memoryUsage > maxMemory : diskUsage > maxDisk) {
+                it.remove();
+                release(entry);
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    private void release(Entry entry) {
+        if (entry.bytes != null) {
+            if (!entry.uncached) {
+                memoryUsage -= entry.size;
+            }
+        } else {
+            if (!entry.uncached) {
+                diskUsage -= entry.size;
+            }
+            if (!entry.file.delete()) {
+                Log.d(TAG, "cannot delete temp file {0}", entry.file);
+            }
+        }
+    }
+
+    private Entry load(Flob flob) throws IOException {
+        val buffer = new ByteArrayOutputStream(Math.min(memoryThreshold, BUFFER_SIZE));
+        val b = new byte[BUFFER_SIZE];
+        try (val input = flob.openStream()) {
+            int n;
+            while ((n = input.read(b)) != -1) {
+                buffer.write(b, 0, n);
+                if (buffer.size() > memoryThreshold) {
+                    return spill(buffer, input, b);
+                }
+            }
+        }
+        return new Entry(buffer.toByteArray(), null, buffer.size());
+    }
+
+    private Entry spill(ByteArrayOutputStream buffer, InputStream input, byte[] b) throws IOException {
+        val file = File.createTempFile("jem-flob-", ".tmp");
+        long size = buffer.size();
+        try (val output = new FileOutputStream(file)) {
+            buffer.writeTo(output);
+            int n;
+            while ((n = input.read(b)) != -1) {
+                output.write(b, 0, n);
+                size += n;
+            }
+        } catch (IOException e) {
+            if (!file.delete()) {
+                Log.d(TAG, "cannot delete temp file {0}", file);
+            }
+            throw e;
+        }
+        return new Entry(null, file, size);
+    }
+
+    private static long longProperty(String name, long fallback) {
+        try {
+            val value = System.getProperty(name);
+            return value != null ? Long.parseLong(value) : fallback;
+        } catch (NumberFormatException | SecurityException e) {
+            Log.e(TAG, "invalid value for " + name, e);
+            return fallback;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return TAG + "[hits=" + hits + ", misses=" + misses + ", evictions=" + evictions + "]";
+    }
+
+    private static class Entry {
+        private final byte[] bytes;
+
+        private final File file;
+
+        private final long size;
+
+        /**
+         * The entry is too large to be cached, only used by the loader.
+         */
+        private boolean uncached;
+
+        Entry(byte[] bytes, File file, long size) {
+            this.bytes = bytes;
+            this.file = file;
+            this.size = size;
+        }
+
+        InputStream openStream() throws IOException {
+            if (bytes != null) {
+                return new ByteArrayInputStream(bytes);
+            } else if (!uncached) {
+                return new FileInputStream(file);
+            }
+            return new FileInputStream(file) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        if (!file.delete()) {
+                            Log.d(TAG, "cannot delete temp file {0}", file);
+                        }
+                    }
+                }
+            };
+        }
+    }
+}
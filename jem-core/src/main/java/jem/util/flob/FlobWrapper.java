@@ -20,15 +20,20 @@ package jem.util.flob;
 
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
+import lombok.val;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.CompletionHandler;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.Future;
 
 @RequiredArgsConstructor
 public class FlobWrapper implements Flob {
     @NonNull
-    private final Flob actual;
+    protected final Flob actual;
 
     @Override
     public String getName() {
@@ -40,6 +45,11 @@ public class FlobWrapper implements Flob {
         return actual.getMime();
     }
 
+    @Override
+    public long length() {
+        return actual.length();
+    }
+
     @Override
     public InputStream openStream() throws IOException {
         return actual.openStream();
@@ -50,6 +60,33 @@ public class FlobWrapper implements Flob {
         return actual.writeTo(output);
     }
 
+    @Override
+    public long transferTo(WritableByteChannel channel) throws IOException {
+        return actual.transferTo(channel);
+    }
+
+    @Override
+    public ByteBuffer asByteBuffer() throws IOException {
+        return actual.asByteBuffer();
+    }
+
+    @Override
+    public long readInto(ByteBuffer buffer) throws IOException {
+        return actual.readInto(buffer);
+    }
+
+    @Override
+    public <A> void readAsync(A attachment, CompletionHandler<ByteBuffer, ? super A> handler) {
+        actual.readAsync(attachment, handler);
+    }
+
+    @Override
+    public Future<ByteBuffer> readAsync() {
+        val result = new AsyncSupport.Result();
+        readAsync(null, result);
+        return result;
+    }
+
     @Override
     public int hashCode() {
         return actual.hashCode();
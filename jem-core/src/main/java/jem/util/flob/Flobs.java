@@ -20,9 +20,12 @@ package jem.util.flob;
 
 import jclp.io.PathUtils;
 import jclp.vdm.VdmReader;
+import jem.Chapter;
 import jem.util.flob.impl.*;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.RandomAccessFile;
 import java.net.URL;
 
@@ -61,6 +64,75 @@ public final class Flobs {
         return new BlockFlob(name, file, offset, size, mime);
     }
 
+    public static BlockFlob forBlock(String name, File file, long offset, long size, String mime) {
+        return new BlockFlob(name, file, offset, size, mime);
+    }
+
+    public static MappedFlob forMapped(File file) {
+        return forMapped(file, null);
+    }
+
+    public static MappedFlob forMapped(File file, String mime) {
+        return new MappedFlob(file, 0, -1, mime);
+    }
+
+    public static MappedFlob forMapped(File file, long offset, long size, String mime) {
+        return new MappedFlob(file, offset, size, mime);
+    }
+
+    /**
+     * Wraps specified flob with the default {@code FlobCache}.
+     *
+     * @param flob the flob to be cached
+     * @return the caching flob, or the flob itself if it is already cached
+     */
+    public static Flob cached(Flob flob) {
+        return cached(flob, FlobCache.getDefault());
+    }
+
+    public static Flob cached(Flob flob, FlobCache cache) {
+        return flob instanceof CachingFlob ? flob : new CachingFlob(flob, cache);
+    }
+
+    /**
+     * Creates a flob for specified data, which is moved to temporary file if it is larger than the threshold.
+     *
+     * @param name  name of the flob
+     * @param bytes the data
+     * @param mime  the mime type, may be {@literal null}
+     * @param owner the chapter deleting the temporary file when cleaned up, may be {@literal null}
+     * @return the flob
+     * @throws IOException if an I/O error occurs when writing the temporary file
+     * @see SpillableFlob#setThreshold(long)
+     */
+    public static SpillableFlob forSpillable(String name, byte[] bytes, String mime, Chapter owner) throws IOException {
+        return attach(new SpillableFlob(name, bytes, mime), owner);
+    }
+
+    /**
+     * Creates a flob for data read from specified input stream, which is written to temporary file if it is larger
+     * than the threshold.
+     *
+     * @param name  name of the flob
+     * @param input the input stream, not closed by this method
+     * @param mime  the mime type, may be {@literal null}
+     * @param owner the chapter deleting the temporary file when cleaned up, may be {@literal null}
+     * @return the flob
+     * @throws IOException if an I/O error occurs
+     * @see SpillableFlob#setThreshold(long)
+     */
+    public static SpillableFlob forSpillable(String name, InputStream input, String mime, Chapter owner)
+            throws IOException {
+        return attach(new SpillableFlob(name, input, mime), owner);
+    }
+
+    private static SpillableFlob attach(SpillableFlob flob, Chapter owner) {
+        if (owner != null && flob.isSpilled()) {
+            owner.addCleanup(flob.cleaner());
+        }
+        return flob;
+    }
+
     public static URLFlob forURL(URL url) {
         return forURL(url, null);
     }
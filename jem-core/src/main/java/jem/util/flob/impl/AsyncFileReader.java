@@ -0,0 +1,93 @@
+/*
+ * Copyright 2017 Peng Wan <phylame@163.com>
+ *
+ * This file is part of Jem.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jem.util.flob.impl;
+
+import jclp.io.IOUtils;
+import lombok.val;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads region of file with {@code AsynchronousFileChannel}, no thread is blocked during reading.
+ */
+final class AsyncFileReader<A> implements CompletionHandler<Integer, A> {
+    private final AsynchronousFileChannel channel;
+
+    private final ByteBuffer buffer;
+
+    private final long offset;
+
+    private final CompletionHandler<ByteBuffer, ? super A> handler;
+
+    private AsyncFileReader(AsynchronousFileChannel channel, ByteBuffer buffer, long offset,
+                            CompletionHandler<ByteBuffer, ? super A> handler) {
+        this.channel = channel;
+        this.buffer = buffer;
+        this.offset = offset;
+        this.handler = handler;
+    }
+
+    /**
+     * Reads specified region of file.
+     *
+     * @param file       the file
+     * @param offset     start of the region
+     * @param length     length of the region, {@literal -1} for the rest of file
+     * @param attachment the object attached to the operation
+     * @param handler    the handler for consuming the result
+     */
+    static <A> void read(File file, long offset, long length, A attachment,
+                         CompletionHandler<ByteBuffer, ? super A> handler) {
+        AsynchronousFileChannel channel = null;
+        try {
+            channel = AsynchronousFileChannel.open(file.toPath(), StandardOpenOption.READ);
+            val size = length < 0 ? channel.size() - offset : length;
+            if (size < 0 || size > Integer.MAX_VALUE) {
+                throw new IOException("cannot read " + size + " bytes from " + file);
+            }
+            val buffer = ByteBuffer.allocate((int) size);
+            channel.read(buffer, offset, attachment, new AsyncFileReader<>(channel, buffer, offset, handler));
+        } catch (IOException | RuntimeException e) {
+            IOUtils.closeQuietly(channel);
+            handler.failed(e, attachment);
+        }
+    }
+
+    @Override
+    public void completed(Integer result, A attachment) {
+        if (result < 0 || !buffer.hasRemaining()) {
+            IOUtils.closeQuietly(channel);
+            buffer.flip();
+            handler.completed(buffer, attachment);
+        } else {
+            channel.read(buffer, offset + buffer.position(), attachment, this);
+        }
+    }
+
+    @Override
+    public void failed(Throwable e, A attachment) {
+        IOUtils.closeQuietly(channel);
+        handler.failed(e, attachment);
+    }
+}
@@ -18,47 +18,253 @@
 
 package jem.util.flob.impl;
 
-import jclp.io.IOUtils;
-import jclp.io.RAFInputStream;
 import jem.util.flob.AbstractFlob;
 import lombok.Getter;
 import lombok.NonNull;
 import lombok.SneakyThrows;
+import lombok.val;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.CompletionHandler;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
 
 import static jclp.util.Validate.require;
 
+/**
+ * Flob for a block of file.
+ * <p>
+ * Blocks are read with positional reads of {@code FileChannel} without locking, so blocks of one file can be
+ * read by multiple threads at the same time.
+ * </p>
+ * <p>
+ * Blocks of a shared {@code RandomAccessFile} read from the channel of the file. As channels are closed when
+ * a thread blocked in them is interrupted, interrupting a reader closes the file for all other blocks.
+ * Blocks of a file path open their own channel for each read operation, interrupting a reader only closes
+ * the channel of that reader, which should be used when readers may be interrupted.
+ * </p>
+ */
 public class BlockFlob extends AbstractFlob {
+    private static final int BUFFER_SIZE = 8192;
+
     @Getter
     private final String name;
 
     public long offset, length;
 
+    /**
+     * The shared file, or {@literal null} if the block is read from path.
+     */
     private final RandomAccessFile source;
 
+    /**
+     * Path of the file, or {@literal null} if the block is read from shared file.
+     */
+    private final File file;
+
     @SneakyThrows(IOException.class)
     public BlockFlob(@NonNull String name, @NonNull RandomAccessFile file, long offset, long length, String mime) {
         super(mime);
         require(offset + length <= file.length(), "offset(%d) + length(%d) > total(%d)", offset, length, file.length());
         this.name = name;
         this.source = file;
+        this.file = null;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    public BlockFlob(@NonNull String name, @NonNull File file, long offset, long length, String mime) {
+        super(mime);
+        require(offset + length <= file.length(), "offset(%d) + length(%d) > total(%d)", offset, length, file.length());
+        this.name = name;
+        this.source = null;
+        this.file = file;
         this.offset = offset;
         this.length = length;
     }
 
+    @Override
+    public long length() {
+        return length;
+    }
+
     @Override
     public InputStream openStream() throws IOException {
-        source.seek(offset);
-        return new RAFInputStream(source, offset, length);
+        return new BlockInputStream(openChannel(), offset, length);
     }
 
     @Override
     public long writeTo(@NonNull OutputStream output) throws IOException {
-        source.seek(offset);
-        return IOUtils.copy(source, output, (int) length);
+        try (val channel = openChannel()) {
+            val buffer = ByteBuffer.allocate((int) Math.min(BUFFER_SIZE, Math.max(length, 1)));
+            long position = offset, remaining = length;
+            while (remaining > 0) {
+                buffer.clear();
+                if (remaining < buffer.capacity()) {
+                    buffer.limit((int) remaining);
+                }
+                val n = read(channel, buffer, position);
+                if (n < 0) {
+                    break;
+                }
+                output.write(buffer.array(), 0, n);
+                position += n;
+                remaining -= n;
+            }
+            return length - remaining;
+        }
+    }
+
+    @Override
+    public long transferTo(@NonNull WritableByteChannel target) throws IOException {
+        if (file == null) {
+            return transfer(source.getChannel(), target);
+        }
+        try (val channel = openChannel()) {
+            return transfer(channel, target);
+        }
+    }
+
+    private long transfer(FileChannel channel, WritableByteChannel target) throws IOException {
+        long position = offset;
+        val end = offset + length;
+        while (position < end) {
+            val n = channel.transferTo(position, end - position, target);
+            if (n <= 0) {
+                break;
+            }
+            position += n;
+        }
+        return position - offset;
+    }
+
+    @Override
+    public long readInto(@NonNull ByteBuffer buffer) throws IOException {
+        val limit = buffer.limit();
+        buffer.limit(buffer.position() + (int) Math.min(length, buffer.remaining()));
+        long position = offset;
+        try (val channel = openChannel()) {
+            while (buffer.hasRemaining()) {
+                val n = read(channel, buffer, position);
+                if (n < 0) {
+                    break;
+                }
+                position += n;
+            }
+        } finally {
+            buffer.limit(limit);
+        }
+        return position - offset;
+    }
+
+    @Override
+    public <A> void readAsync(A attachment, @NonNull CompletionHandler<ByteBuffer, ? super A> handler) {
+        if (file != null) {
+            AsyncFileReader.read(file, offset, length, attachment, handler);
+        } else {
+            super.readAsync(attachment, handler);
+        }
+    }
+
+    /**
+     * Opens a channel for reading the block from path.
+     *
+     * @return the channel, or {@literal null} if the block is read from shared file
+     */
+    private FileChannel openChannel() throws IOException {
+        return file != null ? FileChannel.open(file.toPath(), StandardOpenOption.READ) : null;
+    }
+
+    /**
+     * Reads bytes at specified position from the channel, or from the shared file if the channel is null.
+     */
+    private int read(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        return (channel != null ? channel : source.getChannel()).read(buffer, position);
+    }
+
+    /**
+     * Input stream reading a block of file, the channel is owned by the stream and closed with it.
+     */
+    private class BlockInputStream extends InputStream {
+        private final FileChannel channel;
+
+        private final long end;
+
+        private long position;
+
+        private long mark;
+
+        BlockInputStream(FileChannel channel, long offset, long length) {
+            this.channel = channel;
+            this.position = this.mark = offset;
+            this.end = offset + length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            val b = new byte[1];
+            return read(b, 0, 1) == 1 ? b[0] & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (off < 0 || len < 0 || len > b.length - off) {
+                throw new IndexOutOfBoundsException();
+            } else if (len == 0) {
+                return 0;
+            }
+            val remaining = end - position;
+            if (remaining <= 0) {
+                return -1;
+            }
+            val n = BlockFlob.this.read(channel, ByteBuffer.wrap(b, off, (int) Math.min(len, remaining)), position);
+            if (n > 0) {
+                position += n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            if (n <= 0) {
+                return 0;
+            }
+            val skipped = Math.min(n, end - position);
+            position += skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (int) Math.min(end - position, Integer.MAX_VALUE);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (channel != null) {
+                channel.close();
+            }
+        }
+
+        @Override
+        public boolean markSupported() {
+            return true;
+        }
+
+        @Override
+        public synchronized void mark(int readLimit) {
+            mark = position;
+        }
+
+        @Override
+        public synchronized void reset() throws IOException {
+            position = mark;
+        }
     }
 }
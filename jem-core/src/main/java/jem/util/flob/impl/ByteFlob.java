@@ -26,6 +26,7 @@ import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 
 public class ByteFlob extends AbstractFlob {
     @Getter
@@ -39,6 +40,11 @@ public class ByteFlob extends AbstractFlob {
         this.data = data;
     }
 
+    @Override
+    public long length() {
+        return data.length;
+    }
+
     @Override
     public InputStream openStream() throws IOException {
         return new ByteArrayInputStream(data);
@@ -50,6 +56,11 @@ public class ByteFlob extends AbstractFlob {
         return data.length;
     }
 
+    @Override
+    public ByteBuffer asByteBuffer() throws IOException {
+        return ByteBuffer.wrap(data).asReadOnlyBuffer();
+    }
+
     @Override
     public String toString() {
         return "bytes://" + super.toString();
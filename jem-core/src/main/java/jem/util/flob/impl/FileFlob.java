@@ -21,11 +21,15 @@ package jem.util.flob.impl;
 import jem.util.flob.AbstractFlob;
 import lombok.Getter;
 import lombok.NonNull;
+import lombok.val;
 
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.CompletionHandler;
+import java.nio.channels.WritableByteChannel;
 
 public class FileFlob extends AbstractFlob {
     @Getter
@@ -41,8 +45,34 @@ public class FileFlob extends AbstractFlob {
         return file.getPath();
     }
 
+    @Override
+    public long length() {
+        return file.isFile() ? file.length() : -1;
+    }
+
     @Override
     public InputStream openStream() throws IOException {
         return new FileInputStream(file);
     }
+
+    @Override
+    public <A> void readAsync(A attachment, @NonNull CompletionHandler<ByteBuffer, ? super A> handler) {
+        AsyncFileReader.read(file, 0, -1, attachment, handler);
+    }
+
+    @Override
+    public long transferTo(@NonNull WritableByteChannel channel) throws IOException {
+        try (val input = new FileInputStream(file); val source = input.getChannel()) {
+            val size = source.size();
+            long position = 0;
+            while (position < size) {
+                val n = source.transferTo(position, size - position, channel);
+                if (n <= 0) {
+                    break;
+                }
+                position += n;
+            }
+            return position;
+        }
+    }
 }
@@ -0,0 +1,208 @@
+/*
+ * Copyright 2017 Peng Wan <phylame@163.com>
+ *
+ * This file is part of Jem.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jem.util.flob.impl;
+
+import jem.util.flob.AbstractFlob;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.val;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.InvalidMarkException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.CompletionHandler;
+import java.nio.channels.FileChannel;
+
+import static jclp.util.Validate.require;
+
+/**
+ * Flob for a memory-mapped file or region of file.
+ * <p>
+ * The file is mapped when data is first accessed, and the mapping is kept until this object is collected.
+ * </p>
+ */
+public class MappedFlob extends AbstractFlob {
+    private static final int BUFFER_SIZE = 8192;
+
+    @Getter
+    private final File file;
+
+    @Getter
+    private final long offset;
+
+    private final long length;
+
+    private volatile MappedByteBuffer buffer;
+
+    /**
+     * Constructs flob for specified region of file.
+     *
+     * @param file   the file
+     * @param offset start of the region
+     * @param length length of the region, {@literal -1} for the rest of file
+     * @param mime   the mime type, may be {@literal null}
+     */
+    public MappedFlob(@NonNull File file, long offset, long length, String mime) {
+        super(mime);
+        require(offset >= 0, "offset(%d) < 0", offset);
+        require(length <= Integer.MAX_VALUE, "length(%d) is too large to map", length);
+        this.file = file;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    @Override
+    public String getName() {
+        return file.getPath();
+    }
+
+    @Override
+    public long length() {
+        val buffer = this.buffer;
+        if (buffer != null) {
+            return buffer.capacity();
+        }
+        return length >= 0 ? length : file.isFile() ? Math.max(file.length() - offset, 0) : -1;
+    }
+
+    @Override
+    public InputStream openStream() throws IOException {
+        return new BufferInputStream(asByteBuffer());
+    }
+
+    @Override
+    public long writeTo(@NonNull OutputStream output) throws IOException {
+        val data = asByteBuffer();
+        val count = data.remaining();
+        val b = new byte[Math.min(BUFFER_SIZE, Math.max(count, 1))];
+        while (data.hasRemaining()) {
+            val n = Math.min(b.length, data.remaining());
+            data.get(b, 0, n);
+            output.write(b, 0, n);
+        }
+        return count;
+    }
+
+    @Override
+    public ByteBuffer asByteBuffer() throws IOException {
+        MappedByteBuffer buffer = this.buffer;
+        if (buffer == null) {
+            synchronized (this) {
+                buffer = this.buffer;
+                if (buffer == null) {
+                    this.buffer = buffer = map();
+                }
+            }
+        }
+        return buffer.asReadOnlyBuffer();
+    }
+
+    @Override
+    public <A> void readAsync(A attachment, @NonNull CompletionHandler<ByteBuffer, ? super A> handler) {
+        val buffer = this.buffer;
+        if (buffer != null) { // already mapped
+            handler.completed(buffer.asReadOnlyBuffer(), attachment);
+        } else {
+            AsyncFileReader.read(file, offset, length, attachment, handler);
+        }
+    }
+
+    private MappedByteBuffer map() throws IOException {
+        try (val file = new RandomAccessFile(this.file, "r"); val channel = file.getChannel()) {
+            val size = length < 0 ? channel.size() - offset : length;
+            require(size <= Integer.MAX_VALUE, "size(%d) of %s is too large to map", size, this.file);
+            require(offset + size <= channel.size(), "offset(%d) + length(%d) > total(%d)", offset, size, channel.size());
+            return channel.map(FileChannel.MapMode.READ_ONLY, offset, size);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "mapped://" + super.toString();
+    }
+
+    /**
+     * Input stream reading bytes from a buffer.
+     */
+    private static class BufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        BufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (off < 0 || len < 0 || len > b.length - off) {
+                throw new IndexOutOfBoundsException();
+            } else if (len == 0) {
+                return 0;
+            } else if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            len = Math.min(len, buffer.remaining());
+            buffer.get(b, off, len);
+            return len;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            if (n <= 0) {
+                return 0;
+            }
+            val skipped = (int) Math.min(n, buffer.remaining());
+            buffer.position(buffer.position() + skipped);
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return buffer.remaining();
+        }
+
+        @Override
+        public boolean markSupported() {
+            return true;
+        }
+
+        @Override
+        public synchronized void mark(int readLimit) {
+            buffer.mark();
+        }
+
+        @Override
+        public synchronized void reset() throws IOException {
+            try {
+                buffer.reset();
+            } catch (InvalidMarkException e) {
+                throw new IOException("mark not set");
+            }
+        }
+    }
+}
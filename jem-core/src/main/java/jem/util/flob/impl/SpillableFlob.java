@@ -0,0 +1,234 @@
+/*
+ * Copyright 2017 Peng Wan <phylame@163.com>
+ *
+ * This file is part of Jem.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jem.util.flob.impl;
+
+import jclp.function.Consumer;
+import jclp.log.Log;
+import jem.Chapter;
+import jem.util.flob.AbstractFlob;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.val;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.CompletionHandler;
+import java.nio.channels.WritableByteChannel;
+
+import static jclp.util.Validate.require;
+
+/**
+ * Flob keeping small data in memory and large data in a temporary file.
+ * <p>
+ * Data larger than the threshold is written to a temporary file when the flob is created, the file is deleted
+ * by {@link #delete()}, which can be registered as cleanup of a chapter with {@link #cleaner()}.
+ * </p>
+ * <p>
+ * The threshold can be set by system property {@code jem.flob.spillThreshold} or {@link #setThreshold(long)}.
+ * </p>
+ */
+public class SpillableFlob extends AbstractFlob {
+    private static final String TAG = "SpillableFlob";
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private static volatile long threshold = initThreshold();
+
+    @Getter
+    private final String name;
+
+    private final byte[] data;
+
+    private final File file;
+
+    private final long length;
+
+    public SpillableFlob(@NonNull String name, @NonNull byte[] data, String mime) throws IOException {
+        super(mime);
+        this.name = name;
+        length = data.length;
+        if (length > threshold) {
+            file = createFile();
+            try (val output = new FileOutputStream(file)) {
+                output.write(data);
+            } catch (IOException e) {
+                delete(file);
+                throw e;
+            }
+            this.data = null;
+        } else {
+            this.data = data;
+            file = null;
+        }
+    }
+
+    public SpillableFlob(@NonNull String name, @NonNull InputStream input, String mime) throws IOException {
+        super(mime);
+        this.name = name;
+        val limit = threshold;
+        val buffer = new ByteArrayOutputStream((int) Math.min(limit + 1, BUFFER_SIZE));
+        val b = new byte[BUFFER_SIZE];
+        int n;
+        while ((n = input.read(b)) != -1) {
+            buffer.write(b, 0, n);
+            if (buffer.size() > limit) {
+                break;
+            }
+        }
+        if (n == -1) {
+            data = buffer.toByteArray();
+            length = data.length;
+            file = null;
+            return;
+        }
+        file = createFile();
+        long size = buffer.size();
+        try (val output = new FileOutputStream(file)) {
+            buffer.writeTo(output);
+            while ((n = input.read(b)) != -1) {
+                output.write(b, 0, n);
+                size += n;
+            }
+        } catch (IOException e) {
+            delete(file);
+            throw e;
+        }
+        length = size;
+        data = null;
+    }
+
+    /**
+     * Returns the max size of data kept in memory.
+     *
+     * @return the threshold in bytes
+     */
+    public static long getThreshold() {
+        return threshold;
+    }
+
+    /**
+     * Sets the max size of data kept in memory for flobs created later.
+     *
+     * @param threshold the threshold in bytes
+     * @throws IllegalArgumentException if the threshold is negative
+     */
+    public static void setThreshold(long threshold) {
+        require(threshold >= 0, "threshold(%d) < 0", threshold);
+        SpillableFlob.threshold = threshold;
+    }
+
+    /**
+     * Tests whether the data is stored in temporary file.
+     *
+     * @return {@literal true} if the data is spilled
+     */
+    public boolean isSpilled() {
+        return file != null;
+    }
+
+    @Override
+    public long length() {
+        return length;
+    }
+
+    @Override
+    public InputStream openStream() throws IOException {
+        return data != null ? new ByteArrayInputStream(data) : new FileInputStream(file);
+    }
+
+    @Override
+    public ByteBuffer asByteBuffer() throws IOException {
+        return data != null ? ByteBuffer.wrap(data).asReadOnlyBuffer() : null;
+    }
+
+    @Override
+    public <A> void readAsync(A attachment, @NonNull CompletionHandler<ByteBuffer, ? super A> handler) {
+        if (data != null) {
+            handler.completed(ByteBuffer.wrap(data).asReadOnlyBuffer(), attachment);
+        } else {
+            AsyncFileReader.read(file, 0, length, attachment, handler);
+        }
+    }
+
+    @Override
+    public long transferTo(@NonNull WritableByteChannel channel) throws IOException {
+        if (data != null) {
+            return super.transferTo(channel);
+        }
+        try (val input = new FileInputStream(file); val source = input.getChannel()) {
+            long position = 0;
+            while (position < length) {
+                val n = source.transferTo(position, length - position, channel);
+                if (n <= 0) {
+                    break;
+                }
+                position += n;
+            }
+            return position;
+        }
+    }
+
+    /**
+     * Deletes the temporary file, the flob cannot be read after deleted.
+     */
+    public void delete() {
+        if (file != null) {
+            delete(file);
+        }
+    }
+
+    /**
+     * Returns a cleanup deleting the temporary file, for {@link Chapter#addCleanup(Consumer)}.
+     *
+     * @return the cleanup action
+     */
+    public Consumer<Chapter> cleaner() {
+        return new Consumer<Chapter>() {
+            @Override
+            public void accept(Chapter chapter) {
+                delete();
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        return (file != null ? "spilled://" : "bytes://") + super.toString();
+    }
+
+    private static File createFile() throws IOException {
+        return File.createTempFile("jem-flob-", ".tmp");
+    }
+
+    private static void delete(File file) {
+        if (file.exists() && !file.delete()) {
+            Log.d(TAG, "cannot delete temp file {0}", file);
+        }
+    }
+
+    private static long initThreshold() {
+        try {
+            val value = System.getProperty("jem.flob.spillThreshold");
+            return value != null ? Math.max(0, Long.parseLong(value)) : 1L << 20;
+        } catch (NumberFormatException | SecurityException e) {
+            Log.e(TAG, "invalid spill threshold", e);
+            return 1L << 20;
+        }
+    }
+}
@@ -21,15 +21,22 @@ package jem.util.flob.impl;
 import jem.util.flob.AbstractFlob;
 import lombok.Getter;
 import lombok.NonNull;
+import lombok.val;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
+import java.net.URLConnection;
 
 public class URLFlob extends AbstractFlob {
     @Getter
     private final URL url;
 
+    /**
+     * Content length reported by the last opened connection, {@literal -1} if unknown.
+     */
+    private volatile long length = -1;
+
     public URLFlob(@NonNull URL url, String mime) {
         super(mime);
         this.url = url;
@@ -40,9 +47,36 @@ public class URLFlob extends AbstractFlob {
         return url.getPath();
     }
 
+    /**
+     * Returns the content length reported when the stream was opened last time.
+     * <p>
+     * No request is sent by this method, so the length is unknown before the stream is opened, and it may differ
+     * from the actual data if the content is changed.
+     * </p>
+     *
+     * @return the content length, or {@literal -1} if unknown
+     */
+    @Override
+    public long length() {
+        return length;
+    }
+
     @Override
     public InputStream openStream() throws IOException {
-        return url.openStream();
+        return streamOf(url.openConnection());
+    }
+
+    /**
+     * Opens input stream of specified connection and records its content length.
+     *
+     * @param conn the connection to the URL
+     * @return the input stream
+     * @throws IOException if an I/O error occurs
+     */
+    protected final InputStream streamOf(@NonNull URLConnection conn) throws IOException {
+        val input = conn.getInputStream();
+        length = conn.getContentLengthLong();
+        return input;
     }
 
     @Override
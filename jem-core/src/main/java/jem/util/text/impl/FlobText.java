@@ -21,6 +21,7 @@ package jem.util.text.impl;
 import jclp.io.IOUtils;
 import jem.util.flob.Flob;
 import jem.util.text.AbstractText;
+import lombok.Getter;
 import lombok.NonNull;
 import lombok.SneakyThrows;
 import lombok.val;
@@ -33,8 +34,10 @@ import java.util.Iterator;
 import static jclp.util.Validate.require;
 
 public class FlobText extends AbstractText {
+    @Getter
     private final Flob flob;
 
+    @Getter
     private final String encoding;
 
     public FlobText(String type, @NonNull Flob flob, String encoding) {
@@ -47,9 +50,23 @@ public class FlobText extends AbstractText {
     @Override
     @SneakyThrows(IOException.class)
     public String toString() {
-        try (val input = flob.openStream()) {
-            return IOUtils.toString(input, encoding);
+        val length = flob.length();
+        if (length < 0 || length > Integer.MAX_VALUE - 8) {
+            try (val input = flob.openStream()) {
+                return IOUtils.toString(input, encoding);
+            }
+        }
+        val charset = encoding != null ? Charset.forName(encoding) : Charset.defaultCharset();
+        // multi-byte encodings decode fewer chars than bytes, such as GBK and UTF-8 for CJK text
+        val b = new StringBuilder((int) (length * charset.newDecoder().averageCharsPerByte()));
+        try (val reader = IOUtils.readerFor(flob.openStream(), encoding)) {
+            val buf = new char[(int) Math.min(Math.max(length, 1), 8192)];
+            int n;
+            while ((n = reader.read(buf)) != -1) {
+                b.append(buf, 0, n);
+            }
         }
+        return b.toString();
     }
 
     @Override
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2017 Peng Wan <phylame@163.com>
+ *
+ * This file is part of Jem.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jem;
+
+import lombok.val;
+import org.junit.Before;
+import org.junit.Test;
+import org.openjdk.jol.info.ClassLayout;
+import org.openjdk.jol.info.GraphLayout;
+import org.openjdk.jol.vm.VM;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Checks the per-node memory budget documented in {@link Chapter}.
+ */
+public class ChapterLayoutTest {
+    private static final int COUNT = 1000;
+
+    private static final String TITLE = "title";
+
+    @Before
+    public void setUp() {
+        // budgets are for 64-bit VMs with compressed references and 8-byte alignment
+        val vm = VM.current();
+        assumeTrue(vm.sizeOfField("oop") == 4 && vm.objectHeaderSize() <= 12 && vm.objectAlignment() == 8);
+    }
+
+    /**
+     * Returns bytes retained by each chapter, objects shared by all chapters are not counted.
+     */
+    private static long bytesPerChapter(boolean titled) {
+        return (retainedSize(2 * COUNT, titled) - retainedSize(COUNT, titled)) / COUNT;
+    }
+
+    private static long retainedSize(int count, boolean titled) {
+        val chapters = new Chapter[count];
+        for (int i = 0; i < count; ++i) {
+            chapters[i] = titled ? new Chapter(TITLE) : new Chapter();
+        }
+        return GraphLayout.parseInstance((Object) chapters).totalSize() - VM.current().sizeOf(chapters);
+    }
+
+    @Test
+    public void chapterInstance() {
+        val size = ClassLayout.parseClass(Chapter.class).instanceSize();
+        assertTrue("chapter takes " + size + " bytes", size <= 48);
+    }
+
+    @Test
+    public void emptyChapter() {
+        val size = bytesPerChapter(false);
+        assertTrue("empty chapter takes " + size + " bytes", size <= 88);
+    }
+
+    @Test
+    public void leafChapter() {
+        val size = bytesPerChapter(true);
+        assertTrue("leaf chapter with title takes " + size + " bytes", size <= 120);
+    }
+}
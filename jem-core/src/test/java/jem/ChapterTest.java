@@ -0,0 +1,317 @@
+/*
+ * Copyright 2017 Peng Wan <phylame@163.com>
+ *
+ * This file is part of Jem.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jem;
+
+import jclp.function.Consumer;
+import jclp.function.Predicate;
+import lombok.val;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ChapterTest {
+    private Chapter root;
+
+    private List<Chapter> expected;
+
+    @Before
+    public void setUp() {
+        root = new Chapter("root");
+        expected = new ArrayList<>();
+        for (int i = 0; i < 10; ++i) {
+            val chapter = new Chapter("chapter " + i);
+            root.append(chapter);
+            expected.add(chapter);
+        }
+    }
+
+    private void assertPositions() {
+        assertEquals(expected.size(), root.size());
+        for (int i = 0; i < expected.size(); ++i) {
+            val chapter = expected.get(i);
+            assertSame(chapter, root.chapterAt(i));
+            assertSame(root, chapter.getParent());
+            assertEquals(i, root.indexOf(chapter));
+        }
+    }
+
+    @Test
+    public void append() {
+        assertPositions();
+    }
+
+    @Test
+    public void insertAtFront() {
+        val chapter = new Chapter("first");
+        root.insert(0, chapter);
+        expected.add(0, chapter);
+        assertPositions();
+    }
+
+    @Test
+    public void insertAndAppend() {
+        val inserted = new Chapter("inserted");
+        root.insert(5, inserted);
+        expected.add(5, inserted);
+        // positions after 5 are stale, appending must not make them reliable
+        val appended = new Chapter("appended");
+        root.append(appended);
+        expected.add(appended);
+        assertEquals(expected.size() - 1, root.indexOf(appended));
+        assertEquals(6, root.indexOf(expected.get(6)));
+        assertPositions();
+    }
+
+    @Test
+    public void removeAt() {
+        val removed = root.removeAt(3);
+        assertSame(expected.remove(3), removed);
+        assertNull(removed.getParent());
+        assertEquals(-1, root.indexOf(removed));
+        assertPositions();
+    }
+
+    @Test
+    public void removeAtAfterInsert() {
+        val inserted = new Chapter("inserted");
+        root.insert(2, inserted);
+        expected.add(2, inserted);
+        // removes chapters on both sides of the stale boundary
+        expected.remove(root.removeAt(7));
+        expected.remove(root.removeAt(0));
+        assertPositions();
+    }
+
+    @Test
+    public void remove() {
+        val chapter = expected.remove(4);
+        assertTrue(root.remove(chapter));
+        assertFalse(root.remove(chapter));
+        assertPositions();
+    }
+
+    @Test
+    public void indexOfForeign() {
+        assertEquals(-1, root.indexOf(new Chapter("foreign")));
+        assertEquals(-1, root.indexOf(null));
+    }
+
+    @Test
+    public void replaceAt() {
+        val chapter = new Chapter("replacement");
+        val old = root.replaceAt(6, chapter);
+        assertSame(expected.set(6, chapter), old);
+        assertNull(old.getParent());
+        assertEquals(-1, root.indexOf(old));
+        assertPositions();
+    }
+
+    @Test
+    public void swap() {
+        root.insert(0, new Chapter("stale"));
+        expected.add(0, root.chapterAt(0));
+        root.swap(1, 8);
+        val chapter = expected.get(1);
+        expected.set(1, expected.get(8));
+        expected.set(8, chapter);
+        assertPositions();
+    }
+
+    @Test
+    public void removeIf() {
+        val count = root.removeIf(new Predicate<Chapter>() {
+            @Override
+            public boolean test(Chapter chapter) {
+                return root.indexOf(chapter) % 3 == 0;
+            }
+        });
+        assertEquals(4, count);
+        for (int i = expected.size() - 1; i >= 0; --i) {
+            if (i % 3 == 0) {
+                val chapter = expected.remove(i);
+                assertNull(chapter.getParent());
+                assertEquals(-1, root.indexOf(chapter));
+            }
+        }
+        assertPositions();
+    }
+
+    @Test
+    public void removeIfNothing() {
+        val count = root.removeIf(new Predicate<Chapter>() {
+            @Override
+            public boolean test(Chapter chapter) {
+                return false;
+            }
+        });
+        assertEquals(0, count);
+        assertPositions();
+    }
+
+    @Test
+    public void removeIfThrows() {
+        try {
+            root.removeIf(new Predicate<Chapter>() {
+                private int count = 0;
+
+                @Override
+                public boolean test(Chapter chapter) {
+                    if (++count == 6) {
+                        throw new IllegalStateException();
+                    }
+                    return count % 2 == 0;
+                }
+            });
+            fail("exception of filter should be thrown");
+        } catch (IllegalStateException e) {
+            assertPositions();
+        }
+    }
+
+    @Test
+    public void randomOperations() {
+        val random = new Random(42);
+        for (int n = 0; n < 2000; ++n) {
+            val size = expected.size();
+            switch (random.nextInt(6)) {
+                case 0: {
+                    val chapter = new Chapter("chapter " + n);
+                    root.append(chapter);
+                    expected.add(chapter);
+                }
+                break;
+                case 1: {
+                    val index = random.nextInt(size + 1);
+                    val chapter = new Chapter("chapter " + n);
+                    root.insert(index, chapter);
+                    expected.add(index, chapter);
+                }
+                break;
+                case 2: {
+                    if (size > 0) {
+                        val index = random.nextInt(size);
+                        assertSame(expected.remove(index), root.removeAt(index));
+                    }
+                }
+                break;
+                case 3: {
+                    if (size > 1) {
+                        val from = random.nextInt(size);
+                        val to = random.nextInt(size);
+                        root.swap(from, to);
+                        val chapter = expected.get(from);
+                        expected.set(from, expected.get(to));
+                        expected.set(to, chapter);
+                    }
+                }
+                break;
+                case 4: {
+                    if (size > 0) {
+                        val chapter = expected.get(random.nextInt(size));
+                        assertEquals(expected.indexOf(chapter), root.indexOf(chapter));
+                    }
+                }
+                break;
+                case 5: {
+                    if (size > 0) {
+                        assertTrue(root.remove(expected.remove(random.nextInt(size))));
+                    }
+                }
+                break;
+            }
+        }
+        assertPositions();
+    }
+
+    @Test
+    public void loaderRetriedAfterFailure() {
+        val chapter = new Chapter("lazy");
+        val loaded = new Chapter("loaded");
+        chapter.setLoader(new Consumer<Chapter>() {
+            private int count = 0;
+
+            @Override
+            public void accept(Chapter owner) {
+                owner.append(new Chapter("partial " + count));
+                if (++count == 1) {
+                    throw new IllegalStateException();
+                }
+                owner.append(loaded);
+            }
+        });
+        try {
+            chapter.size();
+            fail("failure of loader should be thrown");
+        } catch (ChapterLoadException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+        assertTrue(chapter.isSection());
+        assertEquals(2, chapter.size());
+        assertEquals("partial 1", Attributes.getTitle(chapter.chapterAt(0)));
+        assertEquals(1, chapter.indexOf(loaded));
+        // loader is discarded after it completed
+        assertEquals(2, chapter.size());
+    }
+
+    @Test
+    public void cloneHasOwnCleanups() {
+        val cleaned = new ArrayList<String>();
+        root.addCleanup(new Consumer<Chapter>() {
+            @Override
+            public void accept(Chapter chapter) {
+                cleaned.add("source");
+            }
+        });
+        val copy = root.clone();
+        copy.addCleanup(new Consumer<Chapter>() {
+            @Override
+            public void accept(Chapter chapter) {
+                cleaned.add("copy");
+            }
+        });
+        root.cleanup();
+        assertEquals(Arrays.asList("source"), cleaned);
+        copy.cleanup();
+        assertEquals(Arrays.asList("source", "copy"), cleaned);
+    }
+
+    @Test
+    public void loadAllDetachesClone() {
+        root.chapterAt(2).append(new Chapter("nested"));
+        val copy = root.clone();
+        copy.loadAll();
+        root.chapterAt(2).clear(true);
+        root.removeAt(0);
+        assertEquals(expected.size(), copy.size());
+        for (int i = 0; i < expected.size(); ++i) {
+            val chapter = copy.chapterAt(i);
+            assertNotSame(expected.get(i), chapter);
+            assertSame(copy, chapter.getParent());
+            assertEquals(Attributes.getTitle(expected.get(i)), Attributes.getTitle(chapter));
+        }
+        assertEquals(1, copy.chapterAt(2).size());
+        assertEquals("nested", Attributes.getTitle(copy.chapterAt(2).chapterAt(0)));
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2017 Peng Wan <phylame@163.com>
+ *
+ * This file is part of Jem.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jem.util;
+
+import lombok.val;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class PersistentMapTest {
+    /**
+     * Keys with the same hash code.
+     */
+    private static final String[] COLLISIONS = {"AaAa", "AaBB", "BBAa", "BBBB"};
+
+    private static void assertEntries(Map<String, Object> expected, PersistentMap map) {
+        assertEquals(expected.size(), map.size());
+        for (val entry : expected.entrySet()) {
+            assertTrue(map.containsKey(entry.getKey()));
+            assertEquals(entry.getValue(), map.get(entry.getKey()));
+        }
+        val entries = new HashMap<String, Object>();
+        for (val entry : map.entries()) {
+            assertNull(entries.put(entry.getKey(), entry.getValue()));
+        }
+        assertEquals(expected, entries);
+        val array = new Object[map.size() * 2];
+        map.copyTo(array);
+        entries.clear();
+        for (int i = 0; i < array.length; i += 2) {
+            assertNull(entries.put((String) array[i], array[i + 1]));
+        }
+        assertEquals(expected, entries);
+    }
+
+    /**
+     * Finds a key whose hash differs from specified hash only above the lowest level of the trie.
+     */
+    private static String keyNear(int hash) {
+        for (int i = 0; ; ++i) {
+            val key = "key" + i;
+            if (key.hashCode() != hash && (key.hashCode() & 31) == (hash & 31)) {
+                return key;
+            }
+        }
+    }
+
+    @Test
+    public void empty() {
+        val map = PersistentMap.EMPTY;
+        assertEquals(0, map.size());
+        assertNull(map.get("a"));
+        assertFalse(map.containsKey("a"));
+        assertSame(map, map.remove("a"));
+        assertTrue(map.entries().isEmpty());
+    }
+
+    @Test
+    public void putAndReplace() {
+        val value = new Object();
+        val map = PersistentMap.EMPTY.put("a", value);
+        assertEquals(1, map.size());
+        assertSame(value, map.get("a"));
+        assertSame(map, map.put("a", value));
+        val other = map.put("a", "b");
+        assertEquals(1, other.size());
+        assertEquals("b", other.get("a"));
+        assertSame(value, map.get("a"));
+    }
+
+    @Test
+    public void updatesKeepOldVersions() {
+        val versions = new ArrayList<PersistentMap>();
+        val expected = new ArrayList<Map<String, Object>>();
+        PersistentMap map = PersistentMap.EMPTY;
+        val reference = new HashMap<String, Object>();
+        for (int i = 0; i < 200; ++i) {
+            val key = "k" + (i % 150);
+            if (i % 7 == 0) {
+                map = map.remove("k" + (i / 2));
+                reference.remove("k" + (i / 2));
+            } else {
+                map = map.put(key, i);
+                reference.put(key, i);
+            }
+            versions.add(map);
+            expected.add(new HashMap<>(reference));
+        }
+        for (int i = 0; i < versions.size(); ++i) {
+            assertEntries(expected.get(i), versions.get(i));
+        }
+    }
+
+    @Test
+    public void collisions() {
+        for (int i = 1; i < COLLISIONS.length; ++i) {
+            assertEquals(COLLISIONS[0].hashCode(), COLLISIONS[i].hashCode());
+        }
+        val reference = new HashMap<String, Object>();
+        PersistentMap map = PersistentMap.EMPTY;
+        for (val key : COLLISIONS) {
+            map = map.put(key, key + "-1");
+            reference.put(key, key + "-1");
+            assertEntries(reference, map);
+        }
+        val before = map;
+        map = map.put(COLLISIONS[2], "replaced");
+        reference.put(COLLISIONS[2], "replaced");
+        assertEntries(reference, map);
+        assertEquals(COLLISIONS[2] + "-1", before.get(COLLISIONS[2]));
+        assertNull(map.get("AaAB"));
+        assertSame(map, map.remove("AaAB"));
+        for (val key : COLLISIONS) {
+            map = map.remove(key);
+            reference.remove(key);
+            assertEntries(reference, map);
+        }
+        assertSame(PersistentMap.EMPTY, map);
+    }
+
+    @Test
+    public void collisionsWithOtherKeys() {
+        val near = keyNear(COLLISIONS[0].hashCode());
+        val reference = new HashMap<String, Object>();
+        PersistentMap map = PersistentMap.EMPTY;
+        // collision node is nested in bitmap node when other key shares the slot
+        for (val key : new String[]{COLLISIONS[0], COLLISIONS[1], near, COLLISIONS[2]}) {
+            map = map.put(key, key);
+            reference.put(key, key);
+            assertEntries(reference, map);
+        }
+        map = map.remove(near);
+        reference.remove(near);
+        assertEntries(reference, map);
+        map = map.remove(COLLISIONS[0]).remove(COLLISIONS[2]);
+        reference.remove(COLLISIONS[0]);
+        reference.remove(COLLISIONS[2]);
+        assertEntries(reference, map);
+    }
+
+    @Test
+    public void randomOperations() {
+        val random = new Random(42);
+        val keys = new ArrayList<String>();
+        for (int i = 0; i < 300; ++i) {
+            keys.add("name" + i);
+        }
+        for (val key : COLLISIONS) {
+            keys.add(key);
+        }
+        keys.add(keyNear(COLLISIONS[0].hashCode()));
+        val reference = new HashMap<String, Object>();
+        PersistentMap map = PersistentMap.EMPTY;
+        for (int n = 0; n < 5000; ++n) {
+            val key = keys.get(random.nextInt(keys.size()));
+            if (random.nextInt(3) == 0) {
+                map = map.remove(key);
+                reference.remove(key);
+            } else {
+                map = map.put(key, n);
+                reference.put(key, n);
+            }
+            if (n % 500 == 0) {
+                assertEntries(reference, map);
+            }
+        }
+        assertEntries(reference, map);
+        List<String> names = new ArrayList<>(reference.keySet());
+        for (val key : names) {
+            map = map.remove(key);
+        }
+        assertSame(PersistentMap.EMPTY, map);
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright 2017 Peng Wan <phylame@163.com>
+ *
+ * This file is part of Jem.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jem.util;
+
+import lombok.SneakyThrows;
+import lombok.val;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class VariantMapTest {
+    /**
+     * Max number of entries stored in array, same as {@code VariantMap.ARRAY_LIMIT}.
+     */
+    private static final int ARRAY_LIMIT = 8;
+
+    @SneakyThrows(ReflectiveOperationException.class)
+    private static boolean inTrie(VariantMap map) {
+        val field = VariantMap.class.getDeclaredField("tree");
+        field.setAccessible(true);
+        return field.get(map) != null;
+    }
+
+    private static VariantMap mapOf(int size, Map<String, Object> expected) {
+        val map = new VariantMap();
+        for (int i = 0; i < size; ++i) {
+            map.set("name" + i, i);
+            expected.put("name" + i, i);
+        }
+        return map;
+    }
+
+    private static void assertValues(Map<String, Object> expected, VariantMap map) {
+        assertEquals(expected.size(), map.size());
+        assertEquals(expected.keySet(), map.names());
+        for (val entry : expected.entrySet()) {
+            assertTrue(map.contains(entry.getKey()));
+            assertEquals(entry.getValue(), map.get(entry.getKey()));
+        }
+        int count = 0;
+        for (val ignored : map) {
+            ++count;
+        }
+        assertEquals(expected.size(), count);
+        val values = new HashMap<String, Object>();
+        val cursor = map.cursor();
+        while (cursor.next()) {
+            assertNull(values.put(cursor.getName(), cursor.getValue()));
+        }
+        assertEquals(expected, values);
+        values.clear();
+        map.forEach(new VariantMap.Visitor() {
+            @Override
+            public void visit(String name, Object value) {
+                values.put(name, value);
+            }
+        });
+        assertEquals(expected, values);
+    }
+
+    @Test
+    public void arrayModeUpToLimit() {
+        val expected = new LinkedHashMap<String, Object>();
+        val map = mapOf(ARRAY_LIMIT, expected);
+        assertFalse(inTrie(map));
+        assertValues(expected, map);
+        // array mode keeps insertion order
+        assertEquals(new ArrayList<>(expected.keySet()), new ArrayList<>(map.names()));
+        map.set("name3", "replaced");
+        expected.put("name3", "replaced");
+        assertFalse(inTrie(map));
+        assertValues(expected, map);
+    }
+
+    @Test
+    public void promotedToTrieOverLimit() {
+        val expected = new HashMap<String, Object>();
+        val map = mapOf(ARRAY_LIMIT, expected);
+        map.set("extra", "value");
+        expected.put("extra", "value");
+        assertTrue(inTrie(map));
+        assertValues(expected, map);
+        for (int i = 0; i < ARRAY_LIMIT; ++i) {
+            assertEquals(i, map.remove("name" + i));
+            expected.remove("name" + i);
+            assertValues(expected, map);
+        }
+        assertNull(map.remove("name0"));
+    }
+
+    @Test
+    public void removeInArrayMode() {
+        val expected = new LinkedHashMap<String, Object>();
+        val map = mapOf(5, expected);
+        assertEquals(2, map.remove("name2"));
+        expected.remove("name2");
+        assertValues(expected, map);
+        assertEquals(new ArrayList<>(expected.keySet()), new ArrayList<>(map.names()));
+        map.clear();
+        assertEquals(0, map.size());
+        assertNull(map.get("name0"));
+    }
+
+    @Test
+    public void clonesAreIndependent() {
+        for (val size : new int[]{0, 3, ARRAY_LIMIT, ARRAY_LIMIT + 1, 40}) {
+            val expected = new HashMap<String, Object>();
+            val map = mapOf(size, expected);
+            val copy = map.clone();
+            val copied = new HashMap<String, Object>(expected);
+            assertValues(copied, copy);
+
+            copy.set("name0", "copy");
+            copied.put("name0", "copy");
+            copy.set("added", "copy");
+            copied.put("added", "copy");
+            copy.remove("name1");
+            copied.remove("name1");
+            assertValues(copied, copy);
+            assertValues(expected, map);
+
+            map.set("name2", "source");
+            expected.put("name2", "source");
+            assertValues(expected, map);
+            assertValues(copied, copy);
+
+            map.clear();
+            assertEquals(0, map.size());
+            assertValues(copied, copy);
+        }
+    }
+
+    @Test
+    public void updateAcrossModes() {
+        val expected = new HashMap<String, Object>();
+        val source = mapOf(ARRAY_LIMIT + 4, expected);
+        val map = new VariantMap();
+        map.set("own", true);
+        expected.put("own", true);
+        map.update(source);
+        assertTrue(inTrie(map));
+        assertValues(expected, map);
+    }
+
+    @Test
+    public void listenerReportsChanges() {
+        val events = new ArrayList<String>();
+        val map = new VariantMap();
+        map.setListener(new VariantMap.Listener() {
+            @Override
+            public void variantChanged(VariantMap map, String name, Object oldValue, Object newValue) {
+                events.add(name + ":" + oldValue + "->" + newValue);
+            }
+        });
+        map.set("a", 1);
+        map.set("a", 2);
+        map.remove("a");
+        map.remove("a");
+        map.set("b", 3);
+        map.clear();
+        assertEquals(Arrays.asList("a:null->1", "a:1->2", "a:2->null", "b:null->3", "null:null->null"), events);
+    }
+
+    @Test
+    public void typedGetters() {
+        val map = new VariantMap();
+        map.set("int", 42);
+        map.set("string", " 123 ");
+        map.set("large", "12345678901");
+        map.set("bad", "12k");
+        map.set("double", "1.5");
+        map.set("bool", "TRUE");
+        assertEquals(42, map.getInt("int", -1));
+        assertEquals(123, map.getInt("string", -1));
+        assertEquals(-1, map.getInt("large", -1));
+        assertEquals(12345678901L, map.getLong("large", -1));
+        assertEquals(-1, map.getInt("bad", -1));
+        assertEquals(-1, map.getInt("missing", -1));
+        assertEquals(1.5, map.getDouble("double", 0), 0);
+        assertTrue(map.getBoolean("bool", false));
+        assertFalse(map.getBoolean("bad", false));
+    }
+}
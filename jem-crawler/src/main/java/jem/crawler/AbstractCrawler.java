@@ -20,9 +20,12 @@ package jem.crawler;
 
 import jclp.io.HttpUtils;
 import jclp.io.IOUtils;
+import jem.Chapter;
 import jem.util.TypedConfig;
 import jem.util.flob.Flob;
+import jem.util.flob.Flobs;
 import jem.util.flob.impl.URLFlob;
+import lombok.RequiredArgsConstructor;
 import lombok.val;
 
 import org.json.JSONObject;
@@ -33,27 +36,104 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InterruptedIOException;
 import java.net.*;
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.zip.GZIPInputStream;
 
 import static jclp.util.StringUtils.isNotEmpty;
 import static jclp.util.StringUtils.valueOfName;
 
 public abstract class AbstractCrawler implements Crawler {
-    protected int fetchPage(int page, Object arg) throws IOException {
+    /**
+     * Fetches chapters in specified page of table of contents.
+     * <p>
+     * This method may be called concurrently for different pages, each with its own owner.
+     * </p>
+     *
+     * @param page  the page number, starts from 1
+     * @param owner the chapter to be appended fetched chapters
+     * @param arg   the argument passed to {@code fetchToc}
+     * @return number of pages, only used for the first page
+     * @throws IOException if an I/O error occurs
+     */
+    protected int fetchPage(int page, Chapter owner, Object arg) throws IOException {
         throw new UnsupportedOperationException("Not Implemented");
     }
 
-    protected final void fetchToc(Object arg) throws IOException {
-        for (int i = 2; i < fetchPage(1, arg); ++i) {
-            if (Thread.interrupted()) {
-                throw new InterruptedIOException();
+    /**
+     * Fetches all pages of table of contents to specified chapter.
+     * <p>
+     * When {@code crawler.toc.threads} is greater than 1, pages after the first one are fetched in parallel
+     * into separated chapters, which are merged to the owner in page order by current thread.
+     * </p>
+     *
+     * @param owner  the chapter to be appended fetched chapters
+     * @param arg    the argument passed to {@code fetchPage}
+     * @param config the config for fetching
+     * @throws IOException if an I/O error occurs
+     */
+    protected final void fetchToc(Chapter owner, Object arg, TypedConfig config) throws IOException {
+        val pages = fetchPage(1, owner, arg);
+        val threads = Math.min(config.getInt("crawler.toc.threads", 1), pages - 1);
+        if (threads <= 1) {
+            for (int i = 2; i <= pages; ++i) {
+                if (Thread.interrupted()) {
+                    throw new InterruptedIOException();
+                }
+                fetchPage(i, owner, arg);
+            }
+            return;
+        }
+        val executor = Executors.newFixedThreadPool(threads);
+        try {
+            val tasks = new ArrayList<Future<Chapter>>(pages - 1);
+            for (int i = 2; i <= pages; ++i) {
+                tasks.add(executor.submit(new PageTask(i, arg)));
+            }
+            for (val task : tasks) {
+                val buffer = task.get();
+                val chapters = new ArrayList<Chapter>(buffer.size());
+                for (val chapter : buffer) {
+                    chapters.add(chapter);
+                }
+                buffer.clear(false);
+                for (val chapter : chapters) {
+                    owner.append(chapter);
+                }
+            }
+        } catch (InterruptedException e) {
+            throw new InterruptedIOException();
+        } catch (ExecutionException e) {
+            val cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
             }
-            fetchPage(i, arg);
+            throw new IOException(cause);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @RequiredArgsConstructor
+    private class PageTask implements Callable<Chapter> {
+        private final int page;
+        private final Object arg;
+
+        @Override
+        public Chapter call() throws Exception {
+            val buffer = new Chapter();
+            fetchPage(page, buffer, arg);
+            return buffer;
         }
     }
 
     protected final Flob getFlob(String url, TypedConfig config) throws MalformedURLException {
-        return new CrawlerFlob(new URL(url), null, "get", config);
+        return Flobs.cached(new CrawlerFlob(new URL(url), null, "get", config));
     }
 
     protected final Document getSoup(String url, TypedConfig config) throws IOException {
@@ -146,7 +226,7 @@ public abstract class AbstractCrawler implements Crawler {
 
         @Override
         public InputStream openStream() throws IOException {
-            return openConnection(getUrl().toString(), method, config).getInputStream();
+            return streamOf(openConnection(getUrl().toString(), method, config));
         }
     }
 }
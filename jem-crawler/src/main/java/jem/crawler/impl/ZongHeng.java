@@ -3,6 +3,7 @@ package jem.crawler.impl;
 import jclp.function.BiFunction;
 import jclp.util.*;
 import jem.Book;
+import jem.Chapter;
 import jem.crawler.*;
 import jem.util.JemException;
 import jem.util.TypedConfig;
@@ -88,13 +89,13 @@ public class ZongHeng extends ReusedCrawler {
         setValue(book, KEYWORDS, queryText(doc, "div.tags_wap", VALUES_SEPARATOR));
         val bookId = valueOfName(secondPartOf(url, "?"), "bookid", "&");
         config.set("bookId", bookId);
-        fetchToc(new Local(book, StringUtil.resolve(doc.baseUri(), "/h5/ajax/chapter"), bookId, config));
+        fetchToc(book, new Local(StringUtil.resolve(doc.baseUri(), "/h5/ajax/chapter"), bookId, config), config);
     }
 
     private static final String TEXT_PATTERN = "http://m.zongheng.com/h5/ajax/chapter?bookId=%s&chapterId=%s";
 
     @Override
-    protected int fetchPage(int page, Object arg) throws IOException {
+    protected int fetchPage(int page, Chapter owner, Object arg) throws IOException {
         val data = (Local) arg;
         val pageSize = data.config.getInt("crawler.zongheng.pageSize", 180);
         String url = data.url
@@ -103,16 +104,14 @@ public class ZongHeng extends ReusedCrawler {
         if (json == null) {
             return 0;
         }
-        val book = data.book;
         for (val o : json.getJSONArray("chapters")) {
             val item = (JSONObject) o;
-            val chapter = book.newChapter(trimmed(item.getString("chapterName")));
+            val chapter = owner.newChapter(trimmed(item.getString("chapterName")));
             url = String.format(TEXT_PATTERN, data.bookId, item.getInt("chapterId"));
             chapter.setText(new CrawlerText(url, this, data.config, chapter));
             setValue(chapter, "source", url);
         }
-        if (data.isFirstPage) {
-            data.isFirstPage = false;
+        if (page == 1) {
             return (int) Math.ceil(json.getInt("chapterCount") / json.getDouble("pageSize"));
         }
         return 0;
@@ -120,12 +119,9 @@ public class ZongHeng extends ReusedCrawler {
 
     @RequiredArgsConstructor
     private static class Local {
-        private final Book book;
         private final String url;
         private final String bookId;
         private final TypedConfig config;
-
-        private boolean isFirstPage = true;
     }
 
     @Override
@@ -18,10 +18,13 @@
 
 package jem.epm.impl;
 
+import jclp.function.Consumer;
 import jclp.io.IOUtils;
 import jclp.setting.Settings;
 import jem.Book;
+import jem.Chapter;
 import jem.epm.util.InputCleaner;
+import jem.epm.util.ParserException;
 import jem.util.JemException;
 import jem.util.TypedConfig;
 import lombok.val;
@@ -55,6 +58,9 @@ public abstract class AbstractParser<I extends Closeable> implements FileParser
         try {
             book = parse(input, config);
             checkNotNull(book, "parse(...) of %s returned null", this);
+            if (config.getBoolean("validateAttributes", false)) {
+                validateAttributes(book);
+            }
         } catch (Exception e) {
             IOUtils.closeQuietly(input);
             throw e;
@@ -62,4 +68,42 @@ public abstract class AbstractParser<I extends Closeable> implements FileParser
         book.addCleanup(new InputCleaner(input));
         return book;
     }
+
+    /**
+     * Tests whether attributes read from input can be set without checking.
+     * <p>
+     * Parsers check every attribute when it is set unless argument {@code parser.trustAttributes} is
+     * {@literal true}, which should only be used for input from trusted source.
+     * </p>
+     *
+     * @param config the parser config
+     * @return {@literal true} if attributes are trusted
+     */
+    protected static boolean isTrusted(TypedConfig config) {
+        return config.getBoolean("trustAttributes", false);
+    }
+
+    /**
+     * Checks attributes of all chapters in specified book.
+     * <p>
+     * Parsers set attributes without checking when argument {@code parser.trustAttributes} is {@literal true},
+     * this method is invoked after parsing when argument {@code parser.validateAttributes} is {@literal true}.
+     * Note that all lazy loaded chapters will be loaded.
+     * </p>
+     *
+     * @param book the parsed book
+     * @throws ParserException if any attribute is invalid
+     */
+    protected void validateAttributes(Book book) throws ParserException {
+        try {
+            book.walk(new Consumer<Chapter>() {
+                @Override
+                public void accept(Chapter chapter) {
+                    chapter.getAttributes().validate();
+                }
+            });
+        } catch (IllegalArgumentException e) {
+            throw new ParserException(e.getMessage(), e);
+        }
+    }
 }
@@ -30,6 +30,7 @@ import lombok.NonNull;
 import lombok.val;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.zip.ZipFile;
@@ -73,7 +74,12 @@ public final class VdmUtils {
 
     public static void write(VdmWriter writer, String name, Flob flob) throws IOException {
         val entry = writer.newEntry(name);
-        flob.writeTo(writer.putEntry(entry));
+        val output = writer.putEntry(entry);
+        if (output instanceof FileOutputStream) { // e.g. entry of directory
+            flob.transferTo(((FileOutputStream) output).getChannel());
+        } else {
+            flob.writeTo(output);
+        }
         writer.closeEntry(entry);
     }
 
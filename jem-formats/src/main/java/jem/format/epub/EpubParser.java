@@ -20,7 +20,6 @@ package jem.format.epub;
 
 import jclp.io.PathUtils;
 import jclp.log.Log;
-import jclp.util.DateUtils;
 import jclp.util.MiscUtils;
 import jclp.vdm.VdmReader;
 import jem.Attributes;
@@ -29,6 +28,7 @@ import jem.Chapter;
 import jem.epm.impl.VdmParser;
 import jem.epm.util.ParserException;
 import jem.epm.util.VdmUtils;
+import jem.util.DateFormats;
 import jem.util.JemException;
 import jem.util.TypedConfig;
 import jem.util.flob.Flobs;
@@ -61,6 +61,7 @@ public class EpubParser extends VdmParser implements EPUB {
             throw error("epub.parse.invalidMT", MIME_PATH, MIME_EPUB);
         }
         val data = new Local(new Book(), input);
+        data.trusted = isTrusted(config);
         readContainer(data);
         readOpf(data);
         readNcx(data);
@@ -200,7 +201,7 @@ public class EpubParser extends VdmParser implements EPUB {
                     name = Attributes.DATE;
                 }
                 try {
-                    value = DateUtils.parse(text, "yyyy-m-D");
+                    value = DateFormats.parse(text, "yyyy-m-D");
                 } catch (ParseException e) {
                     Log.d(TAG, "invalid date format", e);
                     return;
@@ -230,7 +231,11 @@ public class EpubParser extends VdmParser implements EPUB {
             }
             break;
         }
-        book.getAttributes().set(name, value);
+        if (data.trusted) {
+            book.getAttributes().setUnchecked(name, value);
+        } else {
+            book.getAttributes().set(name, value);
+        }
     }
 
     private void readNcx(Local data) throws ParserException, IOException {
@@ -320,6 +325,7 @@ public class EpubParser extends VdmParser implements EPUB {
     private static class Local {
         final Book book;
         final VdmReader reader;
+        boolean trusted;
         XmlPullParser xpp;
         String opfPath;
 
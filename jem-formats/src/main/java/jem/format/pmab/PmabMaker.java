@@ -26,6 +26,7 @@ import jem.Book;
 import jem.Chapter;
 import jem.epm.impl.VdmMaker;
 import jem.format.util.xml.XmlRender;
+import jem.util.DateFormats;
 import jem.util.JemException;
 import jem.util.TypedConfig;
 import jem.util.VariantMap;
@@ -33,15 +34,16 @@ import jem.util.Variants;
 import jem.util.flob.Flob;
 import jem.util.text.Text;
 import jem.util.text.Texts;
+import jem.util.text.impl.FlobText;
 import lombok.SneakyThrows;
 import lombok.val;
 import org.xmlpull.v1.XmlPullParserException;
 
 import java.io.IOException;
 import java.io.StringWriter;
-import java.util.Date;
-import java.util.Locale;
-import java.util.Map;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
 
 import static jem.epm.util.VdmUtils.write;
 
@@ -140,9 +142,11 @@ public class PmabMaker extends VdmMaker implements PMAB {
 
     private void writeVariants(VariantMap values, String name, String prefix, Local data) throws IOException {
         val render = data.render.beginTag(name);
-        for (val pair : values) {
-            writeVariant(pair.getFirst(), pair.getSecond(), prefix, data);
+        val cursor = data.cursor.reset(values);
+        while (cursor.next()) {
+            writeVariant(cursor.getName(), cursor.getValue(), prefix, data);
         }
+        cursor.reset(null);
         render.endTag();
     }
 
@@ -168,7 +172,7 @@ public class PmabMaker extends VdmMaker implements PMAB {
                 break;
                 case Variants.DATETIME: {
                     val format = data.config.getString("pmab.dateFormat", DateUtils.ISO_FORMAT);
-                    text = DateUtils.format((Date) value, format);
+                    text = DateFormats.format((Date) value, format);
                     type = type + ";format=" + format;
                 }
                 break;
@@ -188,20 +192,136 @@ public class PmabMaker extends VdmMaker implements PMAB {
     }
 
     private String writeFlob(Flob flob, String name, Local data) throws IOException {
+        Resource resource = null;
+        if (data.dedup) { // write same flob or content only once
+            val path = data.flobPaths.get(flob);
+            if (path != null) {
+                return path;
+            }
+            resource = new Resource(flob);
+            val existing = findSame(resource, data);
+            if (existing != null) {
+                data.flobPaths.put(flob, existing);
+                return existing;
+            }
+        }
         val extName = PathUtils.extName(flob.getName());
         val path = "resources/" + name + (!extName.isEmpty() ? '.' + extName : "");
         write(data.writer, path, flob);
+        if (resource != null) {
+            resource.path = path;
+            data.flobPaths.put(flob, path);
+            List<Resource> resources = data.resources.get(resource.length);
+            if (resources == null) {
+                data.resources.put(resource.length, resources = new ArrayList<>(1));
+            }
+            resources.add(resource);
+        }
         return path;
     }
 
+    /**
+     * Finds written resource with the same content as specified resource.
+     * <p>
+     * Digests are only computed for resources with the same length, or for flobs of unknown length, so unique
+     * resources of known length are read only once for writing.
+     * </p>
+     *
+     * @return path of the written resource, or {@literal null} if not found
+     */
+    private String findSame(Resource resource, Local data) throws IOException {
+        if (resource.length < 0) {
+            digest(resource);
+        }
+        val resources = data.resources.get(resource.length);
+        if (resources == null) {
+            return null;
+        }
+        if (resource.digest == null) {
+            digest(resource);
+        }
+        for (val other : resources) {
+            if (other.digest == null) {
+                digest(other);
+            }
+            if (other.digest.equals(resource.digest)) {
+                return other.path;
+            }
+        }
+        return null;
+    }
+
+    private void digest(Resource resource) throws IOException {
+        MessageDigest md;
+        try {
+            md = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+        long length = 0;
+        val buffer = resource.flob.asByteBuffer();
+        if (buffer != null) {
+            length = buffer.remaining();
+            md.update(buffer);
+        } else {
+            try (val input = resource.flob.openStream()) {
+                val b = new byte[8192];
+                int n;
+                while ((n = input.read(b)) != -1) {
+                    md.update(b, 0, n);
+                    length += n;
+                }
+            }
+        }
+        val b = new StringBuilder(40);
+        for (val octet : md.digest()) {
+            b.append(Character.forDigit((octet >> 4) & 0xF, 16)).append(Character.forDigit(octet & 0xF, 16));
+        }
+        resource.digest = b.toString();
+        resource.length = length;
+    }
+
     private String writeText(Text text, String name, Local data) throws IOException {
         val path = "text/" + name + '.' + (text.getType().equals(Texts.PLAIN) ? "txt" : text.getType());
-        write(data.writer, path, text, data.encoding);
+        if (rawEncodingOf(text, data) != null) { // copy bytes without decoding and encoding
+            write(data.writer, path, ((FlobText) text).getFlob());
+        } else {
+            write(data.writer, path, text, data.encoding);
+        }
         return path;
     }
 
+    /**
+     * Returns encoding of the text if its bytes can be copied as is.
+     * <p>
+     * With argument {@code pmab.copyRawText}, texts backed by files with known encoding, such as texts of a book
+     * read from PMAB, are copied in their own encoding, which is declared in the content type.
+     * </p>
+     *
+     * @return the encoding, or {@literal null} if the text must be encoded with {@code pmab.txtEncoding}
+     */
+    private String rawEncodingOf(Text text, Local data) {
+        return data.copyRawText && text instanceof FlobText ? ((FlobText) text).getEncoding() : null;
+    }
+
     private String getType(Text text, Local data) {
-        return "text/" + text.getType() + ";encoding=" + data.encoding;
+        val encoding = rawEncodingOf(text, data);
+        return "text/" + text.getType() + ";encoding=" + (encoding != null ? encoding : data.encoding);
+    }
+
+    /**
+     * Written resource, the digest is computed when needed.
+     */
+    private static class Resource {
+        final Flob flob;
+        String path;
+        String digest;
+        long length;
+
+        Resource(Flob flob) {
+            this.flob = flob;
+            length = flob.length();
+        }
     }
 
     private static class Local {
@@ -210,6 +330,11 @@ public class PmabMaker extends VdmMaker implements PMAB {
         XmlRender render;
         TypedConfig config;
         String encoding;
+        boolean copyRawText;
+        VariantMap.Cursor cursor = new VariantMap.Cursor();
+        boolean dedup;
+        Map<Flob, String> flobPaths = new IdentityHashMap<>();
+        Map<Long, List<Resource>> resources = new HashMap<>();
 
         @SneakyThrows(XmlPullParserException.class)
         Local(Book book, VdmWriter writer, TypedConfig config) {
@@ -218,6 +343,8 @@ public class PmabMaker extends VdmMaker implements PMAB {
             this.config = config;
             this.render = new XmlRender(config);
             encoding = config.getString("pmab.txtEncoding", System.getProperty("file.encoding"));
+            copyRawText = config.getBoolean("pmab.copyRawText", false);
+            dedup = config.getBoolean("pmab.dedupResources", false);
         }
     }
 }
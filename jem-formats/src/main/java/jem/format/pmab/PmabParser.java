@@ -18,6 +18,8 @@
 
 package jem.format.pmab;
 
+import jclp.function.Consumer;
+import jclp.io.IOUtils;
 import jclp.vdm.VdmReader;
 import jem.Attributes;
 import jem.Book;
@@ -37,7 +39,11 @@ import org.xmlpull.v1.XmlPullParser;
 import org.xmlpull.v1.XmlPullParserException;
 import org.xmlpull.v1.XmlPullParserFactory;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -108,7 +114,7 @@ public class PmabParser extends VdmParser implements PMAB {
         boolean hasText = false;
         switch (tag) {
             case "item": {
-                data.itemName = getAttribute(xpp, "name");
+                data.itemName = Attributes.internName(getAttribute(xpp, "name"));
                 data.itemType = xpp.getAttributeValue(null, "type");
                 hasText = true;
             }
@@ -131,50 +137,175 @@ public class PmabParser extends VdmParser implements PMAB {
 
     private void endPbm(String tag, StringBuilder sb, Local data) throws ParserException, IOException {
         if (tag.equals("item")) {
-            data.values.set(data.itemName, parseVariant(sb.toString().trim(), data));
+            setItem(data.values, sb, data);
         }
     }
 
+    private void setItem(VariantMap values, StringBuilder sb, Local data) throws ParserException, IOException {
+        val value = parseVariant(sb.toString().trim(), data);
+        if (data.trusted) {
+            values.setUnchecked(data.itemName, value);
+        } else {
+            values.set(data.itemName, value);
+        }
+    }
+
+    /**
+     * Reads chapters of the book.
+     * <p>
+     * Argument {@code pmab.lazyLoad} enables lazy mode. In lazy mode, {@code content.xml} is decoded into memory
+     * and start offsets of all chapter elements are indexed in one pass without building any chapter. Sub-chapters
+     * of the book and of each section are parsed from the offset of their owner when they are accessed at the
+     * first time, so each level of a nested book is tokenized once, and walking the whole book costs
+     * O(depth &times; file size). The decoded document is kept until all sections are loaded.
+     * </p>
+     * <p>
+     * All direct sub-chapters of a section are built when the section is loaded, so a flat book gains nothing
+     * when one of its chapters is accessed.
+     * </p>
+     */
     private void readPbc(Local data) throws IOException, JemException {
-        int version = 0;
+        if (data.config.getBoolean("pmab.lazyLoad", false)) {
+            val index = indexPbc(data);
+            if (index != null) {
+                lazyLoad(data.book, index, -1, data);
+            }
+            return;
+        }
         val xpp = data.newXpp();
-        boolean hasText = false;
-        val sb = new StringBuilder();
         try (val stream = getStream(data.reader, PBC_PATH)) {
             xpp.setInput(stream, null);
-            int event = xpp.getEventType();
-            do {
-                switch (event) {
-                    case XmlPullParser.START_TAG: {
-                        val tag = xpp.getName();
-                        if (version != 0) {
-                            hasText = startPbc(tag, data);
-                        } else if (tag.equals("pbc")) {
+            readPbc(data, data.book, null, -1);
+        } catch (XmlPullParserException e) {
+            throw error(e, "pmab.parse.invalidPBC");
+        }
+    }
+
+    /**
+     * Decodes {@code content.xml} and indexes chapter elements for lazy mode.
+     *
+     * @return the index, or {@literal null} if the document is not a PBC document
+     */
+    private PbcIndex indexPbc(Local data) throws IOException, JemException {
+        val buffer = new ByteArrayOutputStream();
+        try (val stream = getStream(data.reader, PBC_PATH)) {
+            IOUtils.copy(stream, buffer, -1);
+        }
+        val bytes = buffer.toByteArray();
+        val xpp = data.newXpp();
+        String encoding;
+        try {
+            xpp.setInput(new ByteArrayInputStream(bytes), null);
+            if (xpp.nextTag() != XmlPullParser.START_TAG || !xpp.getName().equals("pbc")) {
+                return null;
+            }
+            getVersion(xpp, "pmab.parse.unsupportedPBC");
+            encoding = xpp.getInputEncoding();
+        } catch (XmlPullParserException e) {
+            throw error(e, "pmab.parse.invalidPBC");
+        }
+        return new PbcIndex(new String(bytes, encoding != null ? encoding : "UTF-8"));
+    }
+
+    private void lazyLoad(Chapter chapter, final PbcIndex index, final int element, final Local data) {
+        chapter.setLoader(new Consumer<Chapter>() {
+            @Override
+            @SneakyThrows({IOException.class, JemException.class})
+            public void accept(Chapter chapter) {
+                val local = new Local(data.book, data.reader, data.config);
+                val xpp = local.newXpp();
+                val reader = new StringReader(index.text);
+                if (element >= 0) {
+                    if (element >= index.size) {
+                        throw error("pmab.parse.invalidPBC", "no chapter element #" + element);
+                    }
+                    reader.skip(index.starts[element]);
+                }
+                try {
+                    xpp.setInput(reader);
+                    readPbc(local, chapter, index, element);
+                } catch (XmlPullParserException e) {
+                    throw error(e, "pmab.parse.invalidPBC");
+                }
+            }
+        });
+    }
+
+    /**
+     * Reads sub-chapters of the owner from current input of the parser.
+     * <p>
+     * Without index, all chapters of the document are read. With index, only direct sub-chapters of the owner
+     * are read, and sections are loaded lazily with the index. The input is the whole document when the element
+     * is {@literal -1}, otherwise it starts from the start tag of the owner.
+     * </p>
+     *
+     * @param data    the parser data
+     * @param owner   the chapter to be appended sub-chapters
+     * @param index   the chapter index for lazy mode, or {@literal null}
+     * @param element number of the owner element in the index, or {@literal -1} for the book
+     */
+    private void readPbc(Local data, Chapter owner, PbcIndex index, int element)
+            throws IOException, JemException, XmlPullParserException {
+        val xpp = data.xpp;
+        val base = element < 0 ? 0 : 1;
+        int version = element < 0 ? 0 : 3;
+        int level = 0, count = 0, current = -1;
+        boolean hasText = false, linked = false;
+        val sb = new StringBuilder();
+        data.chapter = owner;
+        int event = xpp.getEventType();
+        loop:
+        do {
+            switch (event) {
+                case XmlPullParser.START_TAG: {
+                    val tag = xpp.getName();
+                    hasText = false;
+                    if (version == 0) {
+                        if (tag.equals("pbc")) {
                             version = getVersion(xpp, "pmab.parse.unsupportedPBC");
                         }
+                        break;
                     }
-                    break;
-                    case XmlPullParser.TEXT: {
-                        if (hasText) {
-                            sb.append(xpp.getText());
+                    if (tag.equals("chapter")) {
+                        val number = Math.max(element, 0) + count++;
+                        if (++level == base + 1) {
+                            current = number;
+                            linked = false;
+                        } else if (level == base + 2 && index != null && !linked) {
+                            lazyLoad(data.chapter, index, current, data);
+                            linked = true;
                         }
+                    } else if (level == 0 && base == 1) {
+                        throw error("pmab.parse.invalidPBC", "no chapter element #" + element);
                     }
-                    break;
-                    case XmlPullParser.START_DOCUMENT: {
-                        data.chapter = data.book;
+                    if (level > base && (index == null || level == base + 1)) {
+                        hasText = startPbc(tag, data);
                     }
-                    break;
-                    case XmlPullParser.END_TAG: {
-                        endPbc(xpp.getName(), sb, data);
-                        sb.setLength(0);
+                }
+                break;
+                case XmlPullParser.TEXT: {
+                    if (hasText) {
+                        sb.append(xpp.getText());
                     }
-                    break;
                 }
-                event = xpp.next();
-            } while (event != XmlPullParser.END_DOCUMENT);
-        } catch (XmlPullParserException e) {
-            throw error(e, "pmab.parse.invalidPBC");
-        }
+                break;
+                case XmlPullParser.END_TAG: {
+                    val tag = xpp.getName();
+                    if (level > base && (index == null || level == base + 1)) {
+                        endPbc(tag, sb, data);
+                    }
+                    sb.setLength(0);
+                    if (tag.equals("chapter")) {
+                        if (level == base) { // end of the owner element
+                            break loop;
+                        }
+                        --level;
+                    }
+                }
+                break;
+            }
+            event = xpp.next();
+        } while (event != XmlPullParser.END_DOCUMENT);
     }
 
     private boolean startPbc(String tag, Local data) throws ParserException {
@@ -185,7 +316,7 @@ public class PmabParser extends VdmParser implements PMAB {
                 data.newChapter();
                 break;
             case "item": {
-                data.itemName = getAttribute(xpp, "name");
+                data.itemName = Attributes.internName(getAttribute(xpp, "name"));
                 data.itemType = xpp.getAttributeValue(null, "type");
                 hasText = true;
             }
@@ -206,7 +337,7 @@ public class PmabParser extends VdmParser implements PMAB {
                 data.chapter = data.chapter.getParent();
                 break;
             case "item": {
-                data.chapter.getAttributes().set(data.itemName, parseVariant(sb.toString().trim(), data));
+                setItem(data.chapter.getAttributes(), sb, data);
             }
             break;
             case "content": {
@@ -295,8 +426,11 @@ public class PmabParser extends VdmParser implements PMAB {
             this.book = book;
             this.reader = reader;
             this.config = config;
+            trusted = isTrusted(config);
         }
 
+        private final boolean trusted;
+
         private String itemName, itemType; // item attribute
         private VariantMap values;
 
@@ -316,4 +450,48 @@ public class PmabParser extends VdmParser implements PMAB {
             return xpp;
         }
     }
+
+    /**
+     * Decoded PBC document and start offsets of chapter elements in document order, for lazy mode.
+     */
+    private static class PbcIndex {
+        private final String text;
+
+        private int[] starts = new int[64];
+
+        private int size = 0;
+
+        private PbcIndex(String text) {
+            if (text.startsWith("\uFEFF")) {
+                text = text.substring(1);
+            }
+            this.text = text;
+            int i = text.indexOf('<');
+            while (i >= 0) {
+                if (text.startsWith("<!--", i)) {
+                    i = text.indexOf("-->", i + 4);
+                } else if (text.startsWith("<![CDATA[", i)) {
+                    i = text.indexOf("]]>", i + 9);
+                } else if (text.startsWith("<?", i)) {
+                    i = text.indexOf("?>", i + 2);
+                } else if (text.startsWith("<chapter", i) && isNameEnd(text, i + 8)) {
+                    if (size == starts.length) {
+                        starts = Arrays.copyOf(starts, size * 2);
+                    }
+                    starts[size++] = i;
+                }
+                if (i >= 0) {
+                    i = text.indexOf('<', i + 1);
+                }
+            }
+        }
+
+        private static boolean isNameEnd(String text, int i) {
+            if (i >= text.length()) {
+                return false;
+            }
+            val ch = text.charAt(i);
+            return ch == '>' || ch == '/' || Character.isWhitespace(ch);
+        }
+    }
 }
@@ -21,6 +21,7 @@ package jem.format.util;
 import jclp.util.DateUtils;
 import jclp.util.MiscUtils;
 import jem.epm.util.ParserException;
+import jem.util.DateFormats;
 import lombok.val;
 import org.xmlpull.v1.XmlPullParser;
 
@@ -65,7 +66,7 @@ public final class ParserUtils {
     public static Date parseDate(String str, String format) throws ParserException {
         try {
             return isNotEmpty(format)
-                    ? DateUtils.parse(str, format)
+                    ? DateFormats.parse(str, format)
                     : DateUtils.parse(str, new Date());
         } catch (ParseException e) {
             throw error(e, "err.parser.invalidDate", str);
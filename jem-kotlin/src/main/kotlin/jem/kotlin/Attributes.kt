@@ -48,6 +48,12 @@ var Chapter.words: String
         setWords(this, value)
     }
 
+var Chapter.wordCount: Int
+    get() = getWordCount(this)
+    set(value) {
+        setWords(this, value)
+    }
+
 var Chapter.author: String
     get() = getAuthor(this)
     set(value) {
@@ -110,7 +110,7 @@ class ExtractBook : ValuesFetcher("x"), BookConsumer {
         return (SCI.context["x"] as? List<String> ?: return false).mapNotNull(::getIndices).mapNotNull {
             locateChapter(book, it)
         }.map {
-            val b = Book(it, false)
+            val b = Book(it, true)
             attachBook(b, true)
             saveBook(outParam(b))
         }.all {